@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@code ProcessPayment} and {@code ShipOrder} inputs for an order with {@code items} line items and a
+ * shipping address, serialized with Jackson as the Durable Task data converter does. The orchestrator serializes
+ * every activity input it schedules, and deserializes every activity result, again on each replay; the serialized
+ * inputs and results are what the history stores. Each benchmark is the orchestrator's work for one replay.
+ * <ul>
+ *   <li>{@code wholeOrder} - both activities receive the whole order document, as before the inputs were slimmed.</li>
+ *   <li>{@code projectedInOrchestrator} - the orchestrator projects {@link PaymentRequest} and
+ *       {@link ShipmentRequest} from its own input, parsing the order on every replay, as
+ *       {@code ProcessOrderOrchestration} does for orders passed inline.</li>
+ *   <li>{@code projectedInActivity} - the {@link OrderProjection} activity projects them once, and the orchestrator
+ *       reads its recorded result back, as {@code ProcessOrderOrchestration} does for claim-checked orders. The
+ *       activity takes the claim-check reference, so the order isn't stored again.</li>
+ * </ul>
+ * Each benchmark returns the number of history bytes it accounts for. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ActivityInputBenchmark {
+    private static final String INSTANCE_ID = "5d0a4e6c-3f1b-4a8e-9c2d-7b6e1f0a3c5d";
+    private static final String REFERENCE =
+        "claim-check:sha256:9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Param({"2", "200"})
+    public int items;
+
+    private final ObjectMapper dataConverter = new ObjectMapper();
+    private String orderJson;
+    private String projectionResult;
+
+    @Setup
+    public void setup() {
+        StringBuilder order = new StringBuilder()
+            .append("{\"orderId\": \"ORD123456\", \"customerId\": \"CUST789\", \"amount\": 125.50, \"items\": [");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                order.append(", ");
+            }
+            order.append("{\"productId\": \"PROD").append(i).append("\", \"quantity\": 1, \"price\": 25.10, ")
+                .append("\"description\": \"Stainless steel water bottle, 750 ml, vacuum insulated\"}");
+        }
+        order.append("], \"shippingAddress\": {\"street\": \"123 Main St\", \"city\": \"Seattle\", ")
+            .append("\"state\": \"WA\", \"zipCode\": \"98101\", \"country\": \"USA\"}}");
+        orderJson = order.toString();
+        try {
+            projectionResult = dataConverter.writeValueAsString(OrderProjection.project(orderJson, 1));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public int wholeOrder() throws Exception {
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("instanceId", INSTANCE_ID);
+        request.put("payload", orderJson);
+        String payment = dataConverter.writeValueAsString(request);
+        String shipment = dataConverter.writeValueAsString(request);
+        return payment.length() + shipment.length();
+    }
+
+    @Benchmark
+    public int projectedInOrchestrator() throws Exception {
+        OrderProjection projection = OrderProjection.project(orderJson, 1).forInstance(INSTANCE_ID);
+        String payment = dataConverter.writeValueAsString(projection.getPaymentRequest());
+        String shipment = dataConverter.writeValueAsString(projection.getShipmentRequest());
+        return payment.length() + shipment.length();
+    }
+
+    @Benchmark
+    public int projectedInActivity() throws Exception {
+        String input = dataConverter.writeValueAsString(REFERENCE);
+        OrderProjection projection =
+            dataConverter.readValue(projectionResult, OrderProjection.class).forInstance(INSTANCE_ID);
+        String payment = dataConverter.writeValueAsString(projection.getPaymentRequest());
+        String shipment = dataConverter.writeValueAsString(projection.getShipmentRequest());
+        return input.length() + projectionResult.length() + payment.length() + shipment.length();
+    }
+}
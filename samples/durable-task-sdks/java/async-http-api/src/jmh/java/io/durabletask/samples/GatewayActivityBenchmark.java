@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Activities per second that a fixed-size worker pool sustains against a gateway with 50 ms latency, for
+ * {@code concurrentOrders} activities in flight at once.
+ * <ul>
+ *   <li>{@code blocking} - each activity waits for the gateway response on its worker thread, as the former
+ *       {@code Thread.sleep}-based activities did, so throughput is capped at {@code workerThreads / latency}.</li>
+ *   <li>{@code handOff} - each activity hands the call to the gateway and returns, and the response is delivered
+ *       by a callback, as {@code ProcessPayment} and {@code ShipOrder} now do.</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh}; the {@code activities} column reports activities per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class GatewayActivityBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int concurrentOrders;
+
+    @Param({"4"})
+    public int workerThreads;
+
+    private ExecutorService workerPool;
+    private PaymentGateway gateway;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Activities {
+        public long activities;
+    }
+
+    @Setup
+    public void setup() {
+        workerPool = Executors.newFixedThreadPool(workerThreads);
+        gateway = new PaymentGateway("fixed:50", 0, 1, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        workerPool.shutdownNow();
+        gateway.shutdown();
+    }
+
+    @Benchmark
+    public void blocking(Activities counters) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrentOrders);
+        for (int i = 0; i < concurrentOrders; i++) {
+            workerPool.execute(() -> {
+                gateway.call("{}").join();
+                done.countDown();
+            });
+        }
+        done.await();
+        counters.activities += concurrentOrders;
+    }
+
+    @Benchmark
+    public void handOff(Activities counters) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrentOrders);
+        for (int i = 0; i < concurrentOrders; i++) {
+            workerPool.execute(() -> gateway.call("{}").thenRun(done::countDown));
+        }
+        done.await();
+        counters.activities += concurrentOrders;
+    }
+}
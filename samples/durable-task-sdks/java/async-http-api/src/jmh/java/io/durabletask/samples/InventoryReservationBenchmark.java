@@ -0,0 +1,134 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Time to reserve every line item of an order against the inventory stand-in with 5 ms per call, reserving each
+ * item on its own ({@code orders.inventory.batch-size=1}).
+ * <ul>
+ *   <li>{@code reserve} with {@code maxConcurrency=1} - the sequential baseline, one reservation after another,
+ *       so the step takes {@code items * latency}.</li>
+ *   <li>{@code reserve} with {@code maxConcurrency=16} - up to 16 reservations in flight, a new one starting
+ *       whenever one finishes, so the step takes about {@code items / 16 * latency}.</li>
+ *   <li>{@code batches} - parsing the items into batches, done once per order by the {@code ProjectOrder}
+ *       activity.</li>
+ * </ul>
+ * {@code reserve} runs {@link InventoryReservation#reserve} itself against an orchestration context that stands in
+ * for the scheduler: activities run on a pool standing in for the worker's threads, and hand their batch to the
+ * real {@link InventoryService} and {@link GatewayCallbacks}, whose raised events complete the orchestrator's
+ * waits. The scheduler round trips of the real orchestration are not modeled. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class InventoryReservationBenchmark {
+
+    @Param({"10", "100"})
+    public int items;
+
+    @Param({"1", "16"})
+    public int maxConcurrency;
+
+    private String orderJson;
+    private List<InventoryReservation.Batch> batches;
+    private InventoryService inventory;
+    private GatewayCallbacks callbacks;
+    private ExecutorService workerPool;
+    private TaskOrchestrationContext ctx;
+
+    // Raised events by name, whichever of the raise and the wait comes first
+    private final Map<String, CompletableFuture<Object>> events = new ConcurrentHashMap<>();
+    // Completion of each task handed to the orchestrator; the mocks are stub-only, so they keep no invocations
+    private final Map<Task<?>, CompletableFuture<?>> tasks = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder order = new StringBuilder("{\"orderId\": \"ORD1\", \"amount\": 125.50, \"items\": [");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                order.append(", ");
+            }
+            order.append("{\"productId\": \"PROD").append(i).append("\", \"quantity\": 1, \"price\": 25.10}");
+        }
+        orderJson = order.append("]}").toString();
+        inventory = new InventoryService("fixed:5", 1, maxConcurrency);
+        batches = InventoryReservation.batches(orderJson, inventory.getBatchSize());
+        workerPool = Executors.newCachedThreadPool();
+
+        DurableTaskClient client = mock(DurableTaskClient.class, withSettings().stubOnly());
+        doAnswer(invocation -> event(invocation.getArgument(1)).complete(invocation.getArgument(2)))
+            .when(client).raiseEvent(anyString(), anyString(), any());
+        OrderLanes lanes = mock(OrderLanes.class, withSettings().stubOnly());
+        when(lanes.client(any())).thenReturn(client);
+        callbacks = new GatewayCallbacks(lanes, new SimpleMeterRegistry(), Duration.ofMinutes(5));
+
+        ctx = mock(TaskOrchestrationContext.class, withSettings().stubOnly());
+        when(ctx.getInstanceId()).thenReturn("order-1");
+        when(ctx.callActivity(eq(InventoryReservation.ACTIVITY_NAME), any())).thenAnswer(invocation -> {
+            // The ReserveInventory activity, as registered by WebApi
+            InventoryReservation.Request request = invocation.getArgument(1);
+            return task(CompletableFuture.runAsync(() -> callbacks.deliver(request.getInstanceId(),
+                request.getEventName(), "InventoryResult", inventory.call(request.toPayload())), workerPool));
+        });
+        when(ctx.waitForExternalEvent(anyString(), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> task(event(invocation.getArgument(0))));
+        when(ctx.anyOf(anyList())).thenAnswer(invocation -> {
+            List<Task<?>> inFlight = invocation.getArgument(0);
+            CompletableFuture<Task<?>> first = new CompletableFuture<>();
+            for (Task<?> task : inFlight) {
+                tasks.get(task).whenComplete((result, error) -> first.complete(task));
+            }
+            return task(first);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        workerPool.shutdownNow();
+        callbacks.shutdown();
+        inventory.shutdown();
+    }
+
+    @Benchmark
+    public boolean reserve() {
+        events.clear();
+        tasks.clear();
+        return InventoryReservation.reserve(ctx, batches, inventory.getMaxConcurrency(), Duration.ofMinutes(5));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<InventoryReservation.Batch> batches() throws IOException {
+        return InventoryReservation.batches(orderJson, inventory.getBatchSize());
+    }
+
+    private CompletableFuture<Object> event(String name) {
+        return events.computeIfAbsent(name, key -> new CompletableFuture<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Task<V> task(CompletableFuture<? extends V> future) {
+        Task<V> task = mock(Task.class, withSettings().stubOnly());
+        when(task.await()).thenAnswer(invocation -> future.join());
+        tasks.put(task, future);
+        return task;
+    }
+}
@@ -0,0 +1,321 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskActivityContext;
+import com.microsoft.durabletask.TaskActivityFactory;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import com.microsoft.durabletask.TaskOrchestrationFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Answers;
+import org.mockito.invocation.InvocationOnMock;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * End-to-end time of one order through {@code ProcessOrderOrchestration}, with {@code ValidateOrder} run inline
+ * ({@code orders.inline-steps=ValidateOrder}, the default) or dispatched as an activity
+ * ({@code orders.inline-steps=}).
+ * <p>
+ * The orchestration and activities are the ones {@link WebApi} registers, run by a stand-in for the scheduler and
+ * worker that replays the orchestrator the way the SDK does: each episode runs it from the start, tasks completed
+ * before the episode return their recorded results, and the first wait on any other task ends the episode. The
+ * first episode, each activity and each episode after a completion are dispatched {@code dispatchMs} later,
+ * standing in for the scheduler round trip, and the gateways answer after 1 ms. A dispatched {@code ValidateOrder}
+ * therefore costs the order an activity dispatch, an episode dispatch and one more replay. Inputs and results are
+ * handed over as objects rather than serialized to history, and the gateway timeouts never fire.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OrderOrchestrationBenchmark {
+    private static final String ORDER = "{\"orderId\": \"ORD1\", \"customerId\": \"CUST1\", \"amount\": 125.50, "
+        + "\"items\": [{\"productId\": \"PROD1\", \"quantity\": 2, \"price\": 50.20}, "
+        + "{\"productId\": \"PROD2\", \"quantity\": 1, \"price\": 25.10}]}";
+    private static final long STALL_TIMEOUT_MS = 10_000;
+
+    @Param({"inline", "activity"})
+    public String validateOrder;
+
+    @Param({"0", "10"})
+    public long dispatchMs;
+
+    private final Map<String, TaskActivityFactory> activities = new HashMap<>();
+    private final AtomicLong instances = new AtomicLong();
+    private TaskOrchestrationFactory orchestration;
+    private ScheduledExecutorService workerPool;
+    private Path directory;
+    private OrderAdmission admission;
+    private OrderReadModel readModel;
+    private InventoryService inventory;
+    private PaymentGateway paymentGateway;
+    private ShippingGateway shippingGateway;
+    private GatewayCallbacks callbacks;
+    private volatile Run current;
+
+    @Setup
+    public void setup() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        directory = Files.createTempDirectory("orchestration-benchmark");
+        workerPool = Executors.newScheduledThreadPool(4);
+
+        // Gateway responses are raised on the order that is running
+        DurableTaskClient client = mock(DurableTaskClient.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            current.raise(invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(client).raiseEvent(anyString(), anyString(), any());
+        OrderLanes lanes = mock(OrderLanes.class, withSettings().stubOnly());
+        when(lanes.client(any())).thenReturn(client);
+
+        admission = new OrderAdmission(
+            lanes, registry, 0, 60_000, Duration.ofHours(1), 10, Duration.ofHours(1), 60);
+        readModel = new OrderReadModel(registry, directory.toString(), 1 << 24);
+        inventory = new InventoryService("fixed:1", 1, 16);
+        paymentGateway = new PaymentGateway("fixed:1", 0, 1, registry);
+        shippingGateway = new ShippingGateway("fixed:1", 0, 1, registry);
+        callbacks = new GatewayCallbacks(lanes, registry, Duration.ofMinutes(5));
+        WebApi.DurableTaskConfig.registerOrderPipeline(
+            factory -> orchestration = factory, factory -> activities.put(factory.getName(), factory), "standard",
+            new InFlightWork(registry), admission, new ClaimCheckStore(registry, directory.toString(), -1),
+            new OrderResultCache(registry, 1 << 20), readModel, inventory, paymentGateway, shippingGateway,
+            callbacks, registry, Duration.ofMinutes(5), false,
+            "inline".equals(validateOrder) ? Collections.singletonList("ValidateOrder") : Collections.emptyList());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        workerPool.shutdownNow();
+        callbacks.shutdown();
+        inventory.shutdown();
+        paymentGateway.shutdown();
+        shippingGateway.shutdown();
+        admission.shutdown();
+        readModel.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object order() throws InterruptedException {
+        Run run = new Run("order-" + instances.incrementAndGet());
+        current = run;
+        int pastCompletions = 0;
+        while (true) {
+            // The scheduler dispatches the orchestrator's work item
+            if (dispatchMs > 0) {
+                Thread.sleep(dispatchMs);
+            }
+            Episode episode = run.episode(pastCompletions);
+            try {
+                orchestration.create().run(episode.ctx);
+            } catch (Blocked e) {
+                // The orchestrator waits on a task that hasn't completed yet
+            }
+            if (episode.completed) {
+                return episode.output;
+            }
+            episode.scheduled.forEach((id, activity) -> {
+                if (run.dispatched.add(id)) {
+                    workerPool.schedule(() -> run.execute(id, activity), dispatchMs, TimeUnit.MILLISECONDS);
+                }
+            });
+            pastCompletions = episode.completions;
+            run.awaitCompletionAfter(pastCompletions);
+        }
+    }
+
+    /**
+     * The history of one order: activity results by task ID and raised events by name, each numbered in the order
+     * it arrived.
+     */
+    private final class Run {
+        final String instanceId;
+        final Set<Integer> dispatched = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, Completion> results = new HashMap<>();
+        private final Map<String, List<Completion>> events = new HashMap<>();
+        private int completions;
+
+        Run(String instanceId) {
+            this.instanceId = instanceId;
+        }
+
+        synchronized Episode episode(int pastCompletions) {
+            Map<String, List<Completion>> eventsSoFar = new HashMap<>();
+            events.forEach((name, received) -> eventsSoFar.put(name, new ArrayList<>(received)));
+            return new Episode(this, new HashMap<>(results), eventsSoFar, completions, pastCompletions);
+        }
+
+        void execute(int id, Object[] activity) {
+            TaskActivityContext ctx = mock(TaskActivityContext.class, withSettings().stubOnly().defaultAnswer(
+                invocation -> invocation.getMethod().getName().equals("getInput")
+                    ? activity[1] : Answers.RETURNS_DEFAULTS.answer(invocation)));
+            Object result = activities.get((String) activity[0]).create().run(ctx);
+            synchronized (this) {
+                results.put(id, new Completion(result, completions++));
+                notifyAll();
+            }
+        }
+
+        synchronized void raise(String name, Object payload) {
+            events.computeIfAbsent(name, key -> new ArrayList<>()).add(new Completion(payload, completions++));
+            notifyAll();
+        }
+
+        synchronized void awaitCompletionAfter(int seen) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + STALL_TIMEOUT_MS;
+            while (completions <= seen) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Order " + instanceId + " stalled after " + seen + " completions");
+                }
+                wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * One run of the orchestrator against the history recorded before it started. Tasks are numbered in the order
+     * the orchestrator schedules them, which is the same on every replay.
+     */
+    private static final class Episode {
+        final TaskOrchestrationContext ctx;
+        final Map<Integer, Object[]> scheduled = new LinkedHashMap<>();
+        final int completions;
+        boolean completed;
+        Object output;
+
+        private final Run run;
+        private final Map<Integer, Completion> results;
+        private final Map<String, List<Completion>> events;
+        private final int pastCompletions;
+        private final Instant startedAt = Instant.now();
+        private final Map<String, Integer> waits = new HashMap<>();
+        private final Map<Task<?>, Completion> tasks = new IdentityHashMap<>();
+        private final Set<Integer> awaited = new HashSet<>();
+        private int nextId;
+
+        Episode(Run run, Map<Integer, Completion> results, Map<String, List<Completion>> events, int completions,
+                int pastCompletions) {
+            this.run = run;
+            this.results = results;
+            this.events = events;
+            this.completions = completions;
+            this.pastCompletions = pastCompletions;
+            this.ctx = mock(TaskOrchestrationContext.class, withSettings().stubOnly().defaultAnswer(this::answer));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object answer(InvocationOnMock invocation) throws Throwable {
+            switch (invocation.getMethod().getName()) {
+                case "getInput":
+                    return ORDER;
+                case "getInstanceId":
+                    return run.instanceId;
+                case "getCurrentInstant":
+                    return startedAt;
+                case "getIsReplaying":
+                    // Replaying until the orchestrator has used every result it already saw in the last episode
+                    return awaited.size() < pastCompletions;
+                case "callActivity": {
+                    int id = nextId++;
+                    scheduled.put(id, new Object[] {invocation.getArgument(0), invocation.getArgument(1)});
+                    return task(results.get(id));
+                }
+                case "waitForExternalEvent": {
+                    nextId++;
+                    String name = invocation.getArgument(0);
+                    int index = waits.merge(name, 1, Integer::sum) - 1;
+                    List<Completion> received = events.getOrDefault(name, Collections.emptyList());
+                    return task(index < received.size() ? received.get(index) : null);
+                }
+                case "anyOf": {
+                    // The task whose result arrived first
+                    Task<?> first = null;
+                    for (Task<?> task : (List<Task<?>>) invocation.getArgument(0)) {
+                        Completion completion = tasks.get(task);
+                        if (completion != null && (first == null || completion.order < tasks.get(first).order)) {
+                            first = task;
+                        }
+                    }
+                    return task(first != null ? new Completion(first, tasks.get(first).order) : null);
+                }
+                case "allOf": {
+                    List<Object> values = new ArrayList<>();
+                    int last = 0;
+                    for (Task<?> task : (List<Task<?>>) invocation.getArgument(0)) {
+                        Completion completion = tasks.get(task);
+                        if (completion == null) {
+                            return task(null);
+                        }
+                        values.add(completion.value);
+                        last = Math.max(last, completion.order);
+                    }
+                    return task(new Completion(values, last));
+                }
+                case "complete":
+                    completed = true;
+                    output = invocation.getArgument(0);
+                    return null;
+                default:
+                    return Answers.RETURNS_DEFAULTS.answer(invocation);
+            }
+        }
+
+        private Task<?> task(Completion completion) {
+            Task<?> task = mock(Task.class, withSettings().stubOnly().defaultAnswer(invocation -> {
+                if (!invocation.getMethod().getName().equals("await")) {
+                    return Answers.RETURNS_DEFAULTS.answer(invocation);
+                }
+                if (completion == null) {
+                    throw Blocked.INSTANCE;
+                }
+                awaited.add(completion.order);
+                return completion.value;
+            }));
+            tasks.put(task, completion);
+            return task;
+        }
+    }
+
+    private static final class Completion {
+        final Object value;
+        final int order;
+
+        Completion(Object value, int order) {
+            this.value = value;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Ends an episode at the first wait on a task that hasn't completed, as the SDK does.
+     */
+    private static final class Blocked extends RuntimeException {
+        static final Blocked INSTANCE = new Blocked();
+
+        private Blocked() {
+            super(null, null, false, false);
+        }
+    }
+}
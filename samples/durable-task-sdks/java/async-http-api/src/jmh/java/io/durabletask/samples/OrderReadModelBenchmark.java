@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of serving a finished order from the {@link OrderReadModel} (a hash probe and a copy out of the mapped log)
+ * and of appending one, with {@value #ORDERS} orders of about 400 bytes in the model. Compare {@code getOutput}
+ * with the scheduler round trip it replaces in {@code GET /api/orders/{id}}. The index rebuild on startup is
+ * measured by constructing a model over the populated log. Appends write to a fresh log per iteration, with short
+ * iterations, so the benchmark doesn't fill the disk.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OrderReadModelBenchmark {
+    private static final int ORDERS = 100_000;
+    private static final int SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final String OUTPUT = OrderResult.success(
+        "{\"success\":true,\"transactionId\":\"TXN-7f3a9c1e-5b2d-4e8f-a6c0-9d1b3e5f7a2c\",\"amount\":125.50}",
+        "{\"success\":true,\"trackingNumber\":\"TRK-4c8e2a6f-1d3b-4f5a-9e7c-0b2d4f6a8c1e\",\"carrier\":\"contoso\"}")
+        .toString();
+
+    private Path directory;
+    private OrderReadModel readModel;
+    private String[] instanceIds;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("read-model-benchmark");
+        readModel = new OrderReadModel(new SimpleMeterRegistry(), directory.toString(), SEGMENT_BYTES);
+        instanceIds = new String[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            instanceIds[i] = UUID.randomUUID().toString();
+            readModel.publish(instanceIds[i], "COMPLETED", OUTPUT + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        readModel.close();
+        delete(directory);
+    }
+
+    @Benchmark
+    public String getOutput() {
+        return readModel.getOutput(instanceIds[next++ % ORDERS]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    public void publish(AppendLog log) {
+        log.readModel.publish(instanceIds[next++ % ORDERS], "COMPLETED", OUTPUT);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public OrderReadModel rebuildIndex() throws IOException {
+        OrderReadModel rebuilt = new OrderReadModel(new SimpleMeterRegistry(), directory.toString(), SEGMENT_BYTES);
+        rebuilt.close();
+        return rebuilt;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * An empty read model for the appends of one iteration.
+     */
+    @State(Scope.Benchmark)
+    public static class AppendLog {
+        Path directory;
+        OrderReadModel readModel;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("read-model-benchmark");
+            readModel = new OrderReadModel(new SimpleMeterRegistry(), directory.toString(), SEGMENT_BYTES);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            readModel.close();
+            delete(directory);
+        }
+    }
+}
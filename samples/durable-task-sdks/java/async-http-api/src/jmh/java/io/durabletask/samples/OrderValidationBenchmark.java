@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original string-scan check in {@code ValidateOrder} with the streaming {@link Order} parser
+ * on a multi-kilobyte order document.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderValidationBenchmark {
+
+    @Param({"10", "100"})
+    public int itemCount;
+
+    private String orderJson;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder()
+            .append("{\"orderId\":\"ORD123456\",\"customerId\":\"CUST789\",\"amount\":125.50,\"items\":[");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"productId\":\"PROD").append(i)
+                .append("\",\"quantity\":2,\"price\":49.99,\"description\":\"A sample line item description\"}");
+        }
+        json.append("],\"shippingAddress\":{\"street\":\"123 Main St\",\"city\":\"Seattle\",")
+            .append("\"state\":\"WA\",\"zipCode\":\"98101\",\"country\":\"USA\"}}");
+        orderJson = json.toString();
+    }
+
+    @Benchmark
+    public boolean stringScan() {
+        return orderJson.contains("\"amount\"") && !orderJson.contains("\"amount\":0");
+    }
+
+    @Benchmark
+    public boolean streamingParse() throws IOException {
+        return Order.parse(orderJson).isValid();
+    }
+}
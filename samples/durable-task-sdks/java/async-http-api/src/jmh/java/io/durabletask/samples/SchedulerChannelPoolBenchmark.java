@@ -0,0 +1,171 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.grpc.*;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Call latency of {@code builders} Durable Task builders (the worker, the client and one per extra lane) calling a
+ * scheduler stand-in from 8 threads at once.
+ * <ul>
+ *   <li>{@code shared} - every builder calls through one {@link SchedulerChannelPool}, as with
+ *       {@code orders.grpc.shared-channel=true}.</li>
+ *   <li>{@code separate} - every builder has a channel of its own, as when each builder is created from the
+ *       connection string.</li>
+ * </ul>
+ * The stand-in is a gRPC server in the benchmark's own JVM that echoes a 256-byte request. It listens on a local
+ * port rather than using the in-process transport, which opens no connections, so each channel costs a real
+ * HTTP/2 connection. Setup prints the connections the server accepted and the heap (client and server side) and
+ * threads they added. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class SchedulerChannelPoolBenchmark {
+    private static final MethodDescriptor.Marshaller<byte[]> BYTES = new MethodDescriptor.Marshaller<byte[]>() {
+        @Override
+        public InputStream stream(byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] chunk = new byte[4096];
+                int read;
+                while ((read = stream.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+                return buffer.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+    private static final MethodDescriptor<byte[], byte[]> SCHEDULE = MethodDescriptor.<byte[], byte[]>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName("benchmark.Scheduler", "Schedule"))
+        .setRequestMarshaller(BYTES)
+        .setResponseMarshaller(BYTES)
+        .build();
+    private static final byte[] REQUEST = new byte[256];
+
+    @Param({"shared", "separate"})
+    public String channels;
+
+    @Param({"3", "12", "48"})
+    public int builders;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger callers = new AtomicInteger();
+    private final List<SchedulerChannelPool> pools = new ArrayList<>();
+    private final List<Channel> builderChannels = new ArrayList<>();
+    private Server server;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        Channel channel;
+
+        @Setup
+        public void setup(SchedulerChannelPoolBenchmark benchmark) {
+            List<Channel> channels = benchmark.builderChannels;
+            channel = channels.get(benchmark.callers.getAndIncrement() % channels.size());
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0))
+            .addService(ServerServiceDefinition.builder("benchmark.Scheduler")
+                .addMethod(SCHEDULE, ServerCalls.asyncUnaryCall((request, response) -> {
+                    response.onNext(request);
+                    response.onCompleted();
+                }))
+                .build())
+            .addTransportFilter(new ServerTransportFilter() {
+                @Override
+                public Attributes transportReady(Attributes transportAttrs) {
+                    connections.incrementAndGet();
+                    return transportAttrs;
+                }
+
+                @Override
+                public void transportTerminated(Attributes transportAttrs) {
+                    connections.decrementAndGet();
+                }
+            })
+            .build()
+            .start();
+        String connectionString =
+            "Endpoint=http://localhost:" + server.getPort() + ";TaskHub=default;Authentication=None";
+
+        // Load and initialize the gRPC and Netty classes first, so they don't count towards the connections' heap
+        try (SchedulerChannelPool warmup = newPool(connectionString)) {
+            ClientCalls.blockingUnaryCall(warmup, SCHEDULE, CallOptions.DEFAULT, REQUEST);
+        }
+
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (int i = 0; i < builders; i++) {
+            if ("shared".equals(channels) && !pools.isEmpty()) {
+                builderChannels.add(pools.get(0));
+                continue;
+            }
+            SchedulerChannelPool pool = newPool(connectionString);
+            pools.add(pool);
+            builderChannels.add(pool);
+        }
+        // Connect every builder, as the worker's work-item stream and the client's first call do
+        for (Channel channel : builderChannels) {
+            ClientCalls.blockingUnaryCall(channel, SCHEDULE, CallOptions.DEFAULT, REQUEST);
+        }
+        System.out.printf("%n%s, %d builders: %d connections, +%d KB heap, +%d threads%n", channels, builders,
+            connections.get(), (usedHeap() - heapBefore) / 1024,
+            ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        for (SchedulerChannelPool pool : pools) {
+            pool.close();
+        }
+        server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public byte[] schedule(Caller caller) {
+        return ClientCalls.blockingUnaryCall(caller.channel, SCHEDULE, CallOptions.DEFAULT, REQUEST);
+    }
+
+    private static SchedulerChannelPool newPool(String connectionString) {
+        return SchedulerChannelPool.create(connectionString, 1);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.durabletask.OrchestrationMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the status of many orders in one call, for {@code POST /api/orders/status:batch}.
+ * <p>
+ * Lookups run concurrently on a pool of {@code orders.status-batch.max-concurrency} threads shared by all batch
+ * requests, so a large batch can't flood the scheduler. Finished orders are answered from the
+ * {@link OrderResultCache} or the {@link OrderReadModel} when possible, with the status they finished with, the
+ * same way {@code GET /api/orders/{id}} answers them. Otherwise the instance is first read without its payloads,
+ * and the output is fetched only for orders that have finished; running orders return just their status. The response is
+ * a compact array with one entry per requested ID, in request order:
+ * <pre>
+ * [{"id":"...","status":"COMPLETED","output":{...}}, {"id":"...","status":"RUNNING"}, {"id":"...","status":"NOT_FOUND"}]
+ * </pre>
+ */
+@Component
+class BatchOrderStatus {
+    private static final Logger logger = LoggerFactory.getLogger(BatchOrderStatus.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SingleFlightReads reads;
+    private final OrderResultCache resultCache;
+    private final OrderReadModel readModel;
+    private final int maxIds;
+    private final ExecutorService executor;
+
+    BatchOrderStatus(
+            SingleFlightReads reads,
+            OrderResultCache resultCache,
+            OrderReadModel readModel,
+            @Value("${orders.status-batch.max-ids:1000}") int maxIds,
+            @Value("${orders.status-batch.max-concurrency:16}") int maxConcurrency) {
+        this.reads = reads;
+        this.resultCache = resultCache;
+        this.readModel = readModel;
+        this.maxIds = maxIds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "status-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the most instance IDs accepted in one batch.
+     */
+    int getMaxIds() {
+        return maxIds;
+    }
+
+    /**
+     * Looks up every instance and returns the JSON array described above.
+     */
+    String lookup(List<String> instanceIds) {
+        List<CompletableFuture<Entry>> lookups = new ArrayList<>(instanceIds.size());
+        for (String instanceId : instanceIds) {
+            lookups.add(CompletableFuture.supplyAsync(() -> lookupOne(instanceId), executor));
+        }
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartArray();
+            for (CompletableFuture<Entry> lookup : lookups) {
+                lookup.join().write(json);
+            }
+            json.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private Entry lookupOne(String instanceId) {
+        FinishedOrder finished = resultCache.getFinished(instanceId);
+        if (finished == null) {
+            finished = readModel.get(instanceId);
+        }
+        if (finished != null) {
+            return new Entry(instanceId, finished.getStatus(), finished.getOutput(), null);
+        }
+
+        try {
+            OrchestrationMetadata metadata = reads.getInstanceMetadata(instanceId, false);
+            if (metadata == null || !metadata.isInstanceFound()) {
+                // The scheduler answers unknown IDs with an empty, not-found instance rather than null
+                return new Entry(instanceId, "NOT_FOUND", null, null);
+            }
+            String status = metadata.getRuntimeStatus().toString();
+            if (!OrderStatusWatcher.isTerminal(metadata.getRuntimeStatus())) {
+                return new Entry(instanceId, status, null, null);
+            }
+
+            // Finished, so its output is worth fetching - and caching, since it can't change any more
+            OrchestrationMetadata withOutput = reads.getInstanceMetadata(instanceId, true);
+            String output = withOutput != null ? OrderResult.outputJson(withOutput) : null;
+            resultCache.put(instanceId, metadata.getRuntimeStatus(), output);
+            return new Entry(instanceId, status, output, null);
+        } catch (Exception e) {
+            logger.warn("Failed to look up order {}: {}", instanceId, e.getMessage());
+            return new Entry(instanceId, "ERROR", null, e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final String id;
+        private final String status;
+        private final String output;
+        private final String error;
+
+        Entry(String id, String status, String output, String error) {
+            this.id = id;
+            this.status = status;
+            this.output = output;
+            this.error = error;
+        }
+
+        void write(JsonGenerator json) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("id", id);
+            json.writeStringField("status", status);
+            if (output != null && !output.isEmpty()) {
+                // Order outputs are JSON documents, so embed them as-is rather than as escaped strings
+                json.writeFieldName("output");
+                json.writeRawValue(output);
+            }
+            if (error != null) {
+                json.writeStringField("error", error);
+            }
+            json.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Schedules orders from an NDJSON (one JSON order per line) upload.
+ * <p>
+ * The request body is read one line at a time, so the upload is never buffered as a whole. Each line is
+ * scheduled as its own orchestration instance on a bounded pool; at most {@code orders.bulk.max-concurrency}
+ * schedule calls are in flight per upload, which also throttles how fast the body is read. A result line with
+ * the {@code instanceId} (or the error) is streamed back as soon as each schedule call returns, followed by a
+ * final summary line with throughput and failure counts. Re-running a backfill is safe when idempotent intake
+ * is enabled, since each order resolves to the instance derived from its {@code orderId}. When admission control
+ * rejects an order the upload waits for the backlog to drain instead of failing the line.
+ */
+@Component
+class BulkOrderIntake {
+    private static final Logger logger = LoggerFactory.getLogger(BulkOrderIntake.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final IdempotentOrderIntake intake;
+    private final int maxConcurrency;
+    private final ExecutorService executor;
+
+    BulkOrderIntake(IdempotentOrderIntake intake, @Value("${orders.bulk.max-concurrency:32}") int maxConcurrency) {
+        this.intake = intake;
+        this.maxConcurrency = maxConcurrency;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "bulk-intake-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads orders from {@code body} and writes one NDJSON result line per order to {@code out}.
+     * <p>
+     * If reading the upload fails, the request thread is interrupted or the client goes away, the schedule calls
+     * still in flight are cancelled before this method throws, so they neither hold the pool's threads nor write to
+     * a response that has already ended.
+     */
+    void process(InputStream body, OutputStream out) throws IOException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Set<Future<?>> outstanding = ConcurrentHashMap.newKeySet();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        long startNanos = System.nanoTime();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        boolean drained = false;
+        try {
+            while (writeFailure.get() == null && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                permits.acquire();
+
+                final long currentLine = lineNumber;
+                final String orderJson = line;
+                FutureTask<Void> task = new FutureTask<Void>(() -> {
+                    try {
+                        String instanceId = scheduleWithBackpressure(orderJson);
+                        accepted.incrementAndGet();
+                        writeLine(out, resultLine(currentLine, instanceId, null), writeFailure, closed);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        logger.warn("Failed to schedule bulk order on line {}: {}", currentLine, e.getMessage());
+                        writeLine(out, resultLine(currentLine, null, e.getMessage()), writeFailure, closed);
+                    } finally {
+                        permits.release();
+                    }
+                }, null) {
+                    @Override
+                    protected void done() {
+                        outstanding.remove(this);
+                    }
+                };
+                outstanding.add(task);
+                executor.execute(task);
+            }
+
+            // Wait for every in-flight schedule call before writing the summary
+            if (writeFailure.get() == null) {
+                permits.acquire(maxConcurrency);
+                drained = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk order intake was interrupted");
+        } finally {
+            if (!drained) {
+                // Nothing more is written once this returns; the schedule calls still running are interrupted,
+                // including those waiting out admission control
+                synchronized (out) {
+                    closed.set(true);
+                }
+                outstanding.forEach(task -> task.cancel(true));
+            }
+        }
+
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        long total = accepted.get() + failed.get();
+        logger.info("Bulk intake scheduled {} of {} orders in {} s", accepted.get(), total, elapsedSeconds);
+        writeLine(out, summaryLine(accepted.get(), failed.get(), elapsedSeconds), writeFailure, closed);
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+    }
+
+    private String scheduleWithBackpressure(String orderJson) throws InterruptedException {
+        while (true) {
+            try {
+                return intake.schedule(null, orderJson);
+            } catch (OrderAdmission.AdmissionRejectedException e) {
+                // Hold this permit until the backlog drains; the reader stalls once all permits are held
+                TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void writeLine(OutputStream out, String line, AtomicReference<IOException> writeFailure,
+                                  AtomicBoolean closed) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (out) {
+            if (closed.get() || writeFailure.get() != null) {
+                return;
+            }
+            try {
+                out.write(bytes);
+                out.flush();
+            } catch (IOException e) {
+                // The client went away; stop reading the rest of the upload
+                writeFailure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static String resultLine(long lineNumber, String instanceId, String error) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeNumberField("line", lineNumber);
+            if (instanceId != null) {
+                json.writeStringField("instanceId", instanceId);
+            } else {
+                json.writeStringField("error", error != null ? error : "Scheduling failed");
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static String summaryLine(long accepted, long failed, double elapsedSeconds) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("summary");
+            json.writeNumberField("accepted", accepted);
+            json.writeNumberField("failed", failed);
+            json.writeNumberField("elapsedMs", Math.round(elapsedSeconds * 1000));
+            json.writeNumberField("ordersPerSecond", elapsedSeconds > 0 ? (accepted + failed) / elapsedSeconds : 0);
+            json.writeEndObject();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
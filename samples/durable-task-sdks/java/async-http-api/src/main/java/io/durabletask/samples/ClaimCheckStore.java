@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * Claim-check store for large order documents.
+ * <p>
+ * An orchestration's input is written to its history, and so is every activity input that carries it, so a large
+ * order is copied into history several times over. Orders larger than {@code orders.claim-check.threshold-bytes}
+ * are instead written once to a content-addressed file under {@code orders.claim-check.directory}, named by the
+ * SHA-256 of the document, and only a short reference ({@code claim-check:sha256:<hex>}) travels through the
+ * orchestration. Identical documents share one file. Steps that need the document call {@link #resolve}, which
+ * returns other payloads unchanged. A file's content is fixed by its name, but the file is only present on hosts
+ * that share the directory, and a missing one fails with {@link UncheckedIOException}; resolve references in
+ * activities, where that is an ordinary, retryable activity failure, rather than in orchestrator code.
+ * <p>
+ * Only references to a SHA-256 name are resolved, so a payload can't name any other file. Client documents that
+ * happen to look like a reference are always stored, whatever their size, so they never reach {@link #resolve}
+ * as one.
+ * <p>
+ * Stored documents are not deleted by the sample. The size of what each order puts into its orchestration input
+ * is recorded as {@code orders.payload.bytes}, tagged {@code stored=inline} or {@code stored=claim-check}.
+ */
+@Component
+class ClaimCheckStore {
+    private static final String REFERENCE_PREFIX = "claim-check:sha256:";
+    private static final Pattern SHA_256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directory;
+    private final int thresholdBytes;
+    private final DistributionSummary inlineBytes;
+    private final DistributionSummary referenceBytes;
+
+    ClaimCheckStore(
+            MeterRegistry registry,
+            @Value("${orders.claim-check.directory:${java.io.tmpdir}/orders-payloads}") String directory,
+            @Value("${orders.claim-check.threshold-bytes:-1}") int thresholdBytes) throws IOException {
+        this.directory = Paths.get(directory);
+        this.thresholdBytes = thresholdBytes;
+        if (thresholdBytes >= 0) {
+            Files.createDirectories(this.directory);
+        }
+        this.inlineBytes = payloadSummary(registry, "inline");
+        this.referenceBytes = payloadSummary(registry, "claim-check");
+    }
+
+    /**
+     * Returns the payload to pass to the orchestration: the document itself, or a reference to the stored copy
+     * if it is larger than the threshold.
+     */
+    String offload(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        boolean lookalike = payload.startsWith(REFERENCE_PREFIX);
+        if (!lookalike && (thresholdBytes < 0 || bytes.length <= thresholdBytes)) {
+            inlineBytes.record(bytes.length);
+            return payload;
+        }
+
+        String hash = sha256(bytes);
+        Path file = directory.resolve(hash + ".json");
+        try {
+            if (!Files.exists(file)) {
+                if (thresholdBytes < 0) {
+                    // Only lookalikes are stored while offloading is disabled
+                    Files.createDirectories(directory);
+                }
+                // Write under a temporary name first so readers never see a partial document
+                Path temp = Files.createTempFile(directory, hash, ".tmp");
+                Files.write(temp, bytes);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by another request; the content is identical
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store order payload " + hash, e);
+        }
+
+        String reference = REFERENCE_PREFIX + hash;
+        referenceBytes.record(reference.length());
+        return reference;
+    }
+
+    /**
+     * Returns whether a payload passed through the orchestration is a reference that {@link #resolve} reads from
+     * the store, rather than the document itself.
+     */
+    static boolean isReference(String payload) {
+        return payload != null && payload.startsWith(REFERENCE_PREFIX);
+    }
+
+    /**
+     * Returns the document for a payload passed through the orchestration, reading it from the store if the
+     * payload is a reference.
+     *
+     * @throws IllegalArgumentException if the payload is a reference to anything but a SHA-256 name
+     * @throws UncheckedIOException     if the referenced document can't be read
+     */
+    String resolve(String payload) {
+        if (!isReference(payload)) {
+            return payload;
+        }
+        String hash = payload.substring(REFERENCE_PREFIX.length());
+        if (!SHA_256_HEX.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid claim-check reference");
+        }
+        try {
+            return new String(Files.readAllBytes(directory.resolve(hash + ".json")), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read order payload " + hash, e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static DistributionSummary payloadSummary(MeterRegistry registry, String stored) {
+        return DistributionSummary.builder("orders.payload.bytes")
+            .description("Size of the order payload carried in the orchestration input")
+            .baseUnit("bytes")
+            .tag("stored", stored)
+            .register(registry);
+    }
+}
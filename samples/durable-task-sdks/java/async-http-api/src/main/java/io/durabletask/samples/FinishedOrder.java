@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+/**
+ * The runtime status and output of an order orchestration that has finished, as kept by the
+ * {@link OrderResultCache} and the {@link OrderReadModel}. Orders finish as COMPLETED, FAILED or TERMINATED, and
+ * any of them may carry an output.
+ */
+final class FinishedOrder {
+    private final String status;
+    private final String output;
+
+    FinishedOrder(String status, String output) {
+        this.status = status;
+        this.output = output != null ? output : "";
+    }
+
+    /**
+     * Returns the runtime status the order finished with, such as {@code COMPLETED}.
+     */
+    String getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the order's output, or an empty string if it finished without one.
+     */
+    String getOutput() {
+        return output;
+    }
+}
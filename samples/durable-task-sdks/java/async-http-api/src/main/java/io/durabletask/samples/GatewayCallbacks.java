@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers asynchronous gateway responses back to the waiting orchestration as external events.
+ * <p>
+ * Activities hand a request to a gateway and return straight away instead of blocking a worker thread until the
+ * response arrives. When the response future completes, its result is raised to the orchestration instance that
+ * made the request; a failed call is delivered as {@code {"success":false, ...}} so the orchestration can decide
+ * what to do with it.
+ * <p>
+ * A response that can't be raised, for example while the scheduler is briefly unreachable, is raised again with
+ * exponential backoff from {@link #INITIAL_BACKOFF} up to {@link #MAX_BACKOFF}, until it goes through or
+ * {@code orders.gateway.timeout} has passed since the request was handed off. After that the orchestration has
+ * stopped waiting for it, so it is dropped; giving up too early would fail an order whose charge went through.
+ */
+@Component
+class GatewayCallbacks {
+    static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+    static final Duration MAX_BACKOFF = Duration.ofSeconds(10);
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayCallbacks.class);
+
+    private final OrderLanes lanes;
+    private final MeterRegistry registry;
+    private final Duration timeout;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    GatewayCallbacks(
+            OrderLanes lanes,
+            MeterRegistry registry,
+            @Value("${orders.gateway.timeout:PT5M}") Duration timeout) {
+        this.lanes = lanes;
+        this.registry = registry;
+        this.timeout = timeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(4, r -> {
+            Thread thread = new Thread(r, "gateway-callback-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Raises {@code eventName} on the given orchestration instance once {@code response} completes.
+     */
+    void deliver(String instanceId, String eventName, CompletableFuture<String> response) {
+        deliver(instanceId, eventName, eventName, response);
+    }
+
+    /**
+     * Raises {@code eventName} on the given orchestration instance once {@code response} completes, timing the
+     * response under {@code eventType}; for events named per request, such as one per inventory batch.
+     */
+    void deliver(String instanceId, String eventName, String eventType, CompletableFuture<String> response) {
+        pending.incrementAndGet();
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + timeout.toNanos();
+        response.whenCompleteAsync((result, error) -> {
+            Timer.builder("orders.gateway")
+                .description("Gateway response time")
+                .tag("event", eventType)
+                .tag("outcome", error == null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            String payload = error == null ? result : failure(error);
+            raise(instanceId, eventName, payload, deadlineNanos, INITIAL_BACKOFF.toNanos());
+        }, executor);
+    }
+
+    private void raise(String instanceId, String eventName, String payload, long deadlineNanos, long backoffNanos) {
+        try {
+            lanes.client(instanceId).raiseEvent(instanceId, eventName, payload);
+        } catch (Exception e) {
+            if (System.nanoTime() + backoffNanos < deadlineNanos) {
+                logger.warn("Failed to raise {} on order {}, retrying in {} ms: {}", eventName, instanceId,
+                    TimeUnit.NANOSECONDS.toMillis(backoffNanos), e.getMessage());
+                long nextBackoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF.toNanos());
+                try {
+                    executor.schedule(() -> raise(instanceId, eventName, payload, deadlineNanos, nextBackoffNanos),
+                        backoffNanos, TimeUnit.NANOSECONDS);
+                    return;
+                } catch (RejectedExecutionException shuttingDown) {
+                    e.addSuppressed(shuttingDown);
+                }
+            }
+            // The orchestration's event timeout takes care of responses that can't be delivered
+            logger.error("Failed to raise {} on order {}: {}", eventName, instanceId, e.getMessage());
+        }
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Returns the number of gateway responses that have not been delivered yet, including those waiting to be
+     * raised again.
+     */
+    int pending() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String failure(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        String message = String.valueOf(cause.getMessage());
+        return "{\"success\":false, \"error\":\"" + new String(JsonStringEncoder.getInstance().quoteAsString(message)) + "\"}";
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Activity input for steps that hand work to an asynchronous gateway. It carries the orchestration instance ID
+ * so the gateway's response can be raised back to that instance as an external event.
+ * <p>
+ * Each step has its own subclass that carries only the order fields its gateway needs, projected from the order
+ * by the orchestrator. Activity inputs are written to the orchestration history, so passing the whole order
+ * document to every step would store it once per step.
+ */
+abstract class GatewayRequest {
+    private static final ObjectMapper PAYLOAD_MAPPER = new ObjectMapper();
+
+    private String instanceId;
+
+    GatewayRequest() {
+        // For deserialization
+    }
+
+    GatewayRequest(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * Returns the request document to send to the gateway.
+     */
+    String toPayload() {
+        try {
+            return PAYLOAD_MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microsoft.durabletask.DurableTaskClient;
+import com.microsoft.durabletask.NewOrchestrationInstanceOptions;
+import com.microsoft.durabletask.OrchestrationMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Schedules order orchestrations so that retried submissions of the same order start only one instance.
+ * <p>
+ * When {@code orders.idempotency.enabled} is set, the instance ID is derived from the {@code Idempotency-Key}
+ * request header or, if absent, from the order's {@code customerId} and {@code orderId} together, so that two
+ * customers' orders with the same order number stay separate. A retry therefore targets the same instance:
+ * <ul>
+ *   <li>retries within {@code orders.idempotency.window} are answered from memory without a backend call;</li>
+ *   <li>older retries reach the backend, and a duplicate-start failure for an existing instance is answered with
+ *       that instance's ID.</li>
+ * </ul>
+ * Orders without a key fall back to a random instance ID, as do all orders when the mode is disabled, which is
+ * the default. Large orders are passed to the orchestration through the {@link ClaimCheckStore}.
+ * <p>
+ * Submissions are only deduplicated while the instance exists. Once an order's instance has been purged, a
+ * submission with the same key starts a new order under the same instance ID, so keys must not be reused for
+ * different orders, and clients should not retry a submission after its order may have been purged. When such an
+ * instance starts, the old order's result is dropped from the {@link OrderResultCache} and {@link OrderReadModel}.
+ */
+@Component
+class IdempotentOrderIntake {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentOrderIntake.class);
+
+    private final OrderLanes lanes;
+    private final OrderAdmission admission;
+    private final ClaimCheckStore claimCheck;
+    private final OrderResultCache resultCache;
+    private final OrderReadModel readModel;
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentlyScheduled;
+    private final Counter windowDuplicates;
+    private final Counter backendDuplicates;
+
+    IdempotentOrderIntake(
+            OrderLanes lanes,
+            OrderAdmission admission,
+            ClaimCheckStore claimCheck,
+            OrderResultCache resultCache,
+            OrderReadModel readModel,
+            MeterRegistry registry,
+            @Value("${orders.idempotency.enabled:false}") boolean enabled,
+            @Value("${orders.idempotency.window:PT5M}") Duration window,
+            @Value("${orders.idempotency.max-tracked:100000}") long maxTracked) {
+        this.lanes = lanes;
+        this.admission = admission;
+        this.claimCheck = claimCheck;
+        this.resultCache = resultCache;
+        this.readModel = readModel;
+        this.enabled = enabled;
+        this.recentlyScheduled = Caffeine.newBuilder()
+            .expireAfterWrite(window)
+            .maximumSize(maxTracked)
+            .build();
+        this.windowDuplicates = Counter.builder("orders.intake.duplicates")
+            .tag("source", "window")
+            .description("Retried order submissions absorbed by the in-memory dedup window")
+            .register(registry);
+        this.backendDuplicates = Counter.builder("orders.intake.duplicates")
+            .tag("source", "backend")
+            .description("Retried order submissions that matched an existing instance in the backend")
+            .register(registry);
+    }
+
+    /**
+     * Schedules a new order orchestration, or returns the instance ID of the one already started for the
+     * same order.
+     *
+     * @param idempotencyKey value of the {@code Idempotency-Key} header, or {@code null}
+     * @param orderJson      the raw order document
+     * @return the orchestration instance ID
+     * @throws OrderAdmission.AdmissionRejectedException if too many orders are in flight
+     */
+    String schedule(String idempotencyKey, String orderJson) {
+        return schedule(idempotencyKey, orderJson, false);
+    }
+
+    /**
+     * Schedules a new order orchestration in the standard or express lane ({@link OrderLanes}), or returns the
+     * instance ID of the one already started for the same order.
+     */
+    String schedule(String idempotencyKey, String orderJson, boolean express) {
+        String instanceId = lanes.instanceIdFor(express, enabled ? instanceIdFor(idempotencyKey, orderJson) : null);
+        DurableTaskClient client = lanes.client(instanceId);
+        if (instanceId == null) {
+            admission.admit();
+            try {
+                return client.scheduleNewOrchestrationInstance("ProcessOrderOrchestration", claimCheck.offload(orderJson));
+            } catch (RuntimeException e) {
+                admission.release();
+                throw e;
+            }
+        }
+
+        // Duplicates are answered before admission so that retry storms never count against the limit
+        if (recentlyScheduled.asMap().putIfAbsent(instanceId, Boolean.TRUE) != null) {
+            windowDuplicates.increment();
+            return instanceId;
+        }
+
+        try {
+            admission.admit();
+        } catch (OrderAdmission.AdmissionRejectedException e) {
+            recentlyScheduled.invalidate(instanceId);
+            throw e;
+        }
+
+        try {
+            String scheduled = client.scheduleNewOrchestrationInstance(
+                "ProcessOrderOrchestration",
+                new NewOrchestrationInstanceOptions().setInstanceId(instanceId).setInput(claimCheck.offload(orderJson))
+            );
+            // The ID may belong to a purged order whose result is still held locally
+            resultCache.invalidate(instanceId);
+            readModel.forget(instanceId);
+            return scheduled;
+        } catch (RuntimeException e) {
+            admission.release();
+
+            // A start conflict means the order was already scheduled by an earlier attempt
+            if (exists(client, instanceId, e)) {
+                logger.info("Order instance {} already exists; returning it", instanceId);
+                backendDuplicates.increment();
+                return instanceId;
+            }
+            // Otherwise forget the attempt, so a retry schedules the order instead of getting an unknown ID back
+            recentlyScheduled.invalidate(instanceId);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether the instance exists, or {@code false} if that can't be confirmed; a failed lookup is
+     * recorded as suppressed by the scheduling failure that prompted it.
+     */
+    private static boolean exists(DurableTaskClient client, String instanceId, RuntimeException scheduleFailure) {
+        try {
+            OrchestrationMetadata existing = client.getInstanceMetadata(instanceId, false);
+            return existing != null && existing.isInstanceFound();
+        } catch (RuntimeException e) {
+            scheduleFailure.addSuppressed(e);
+            return false;
+        }
+    }
+
+    private static String instanceIdFor(String idempotencyKey, String orderJson) {
+        String key;
+        if (idempotencyKey != null && !idempotencyKey.trim().isEmpty()) {
+            key = "key:" + idempotencyKey;
+        } else {
+            Order order;
+            try {
+                order = Order.parse(orderJson);
+            } catch (IOException e) {
+                // Malformed orders are rejected by ValidateOrder; schedule them under a random ID
+                return null;
+            }
+            String customerId = order.getCustomerId();
+            String orderId = order.getOrderId();
+            if (customerId == null || customerId.isEmpty() || orderId == null || orderId.isEmpty()) {
+                return null;
+            }
+            // Length-prefixed so that no other pair of IDs produces the same key
+            key = "order:" + customerId.length() + ":" + customerId + orderId;
+        }
+        // Name-based UUID keeps IDs bounded in length and free of characters the backend may reject
+        return "order-" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the activities and orchestration episodes the worker is executing right now, so that shutdown can wait
+ * for them to finish (see {@link WorkerLifecycle}). Exposed as the {@code orders.worker.in-flight} gauge.
+ */
+@Component
+class InFlightWork {
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    InFlightWork(MeterRegistry registry) {
+        Gauge.builder("orders.worker.in-flight", inFlight, AtomicInteger::get)
+            .description("Activities and orchestration episodes currently executing")
+            .register(registry);
+    }
+
+    /**
+     * Wraps an activity registration so that each execution is counted while it runs.
+     */
+    TaskActivityFactory tracked(TaskActivityFactory factory) {
+        return new TaskActivityFactory() {
+            @Override
+            public String getName() { return factory.getName(); }
+
+            @Override
+            public TaskActivity create() {
+                TaskActivity activity = factory.create();
+                return ctx -> {
+                    inFlight.incrementAndGet();
+                    try {
+                        return activity.run(ctx);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Wraps an orchestration registration so that each episode is counted while it runs. An episode that waits
+     * on a task ends by unwinding with an exception, which also ends the count.
+     */
+    TaskOrchestrationFactory tracked(TaskOrchestrationFactory factory) {
+        return new TaskOrchestrationFactory() {
+            @Override
+            public String getName() { return factory.getName(); }
+
+            @Override
+            public TaskOrchestration create() {
+                TaskOrchestration orchestration = factory.create();
+                return ctx -> {
+                    inFlight.incrementAndGet();
+                    try {
+                        orchestration.run(ctx);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the number of activities and orchestration episodes currently executing.
+     */
+    int count() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskFailedException;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inventory reservation step of {@code ProcessOrderOrchestration}: one {@value #ACTIVITY_NAME} activity per batch
+ * of line items, run in parallel. Like the payment and shipping steps, each activity only hands its batch to the
+ * inventory service, and the result is raised back as an external event named {@value #EVENT_PREFIX} followed by
+ * the batch's index, which the orchestrator waits for up to {@code orders.gateway.timeout}.
+ * <p>
+ * The order's {@code items[]} are grouped by their {@code warehouse} (items without one share a default group)
+ * and split into batches of at most {@code orders.inventory.batch-size} items, so a batch size of 1 reserves each
+ * item on its own. The orchestrator then keeps up to {@code orders.inventory.max-concurrency} batches in flight,
+ * scheduling the next one whenever one finishes, so the step takes about as long as its slowest wave of batches
+ * instead of the sum of all of them; a concurrency of 1 is the sequential baseline. Once a batch can't be
+ * reserved, because the service declined it, its activity failed or its result timed out, no further batches
+ * are scheduled, and the step reports failure after the ones in flight finish. Batches already reserved are not
+ * released.
+ * <p>
+ * Items are parsed into batches with the rest of the {@link OrderProjection}, in the orchestrator for orders
+ * passed inline, which is replay safe because the batches depend on nothing but the order document. Changing
+ * either setting changes the orchestration history, so only do it while no orders are in flight.
+ */
+final class InventoryReservation {
+    static final String ACTIVITY_NAME = "ReserveInventory";
+    static final String EVENT_PREFIX = "InventoryResult-";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String DEFAULT_WAREHOUSE = "default";
+
+    private InventoryReservation() {
+    }
+
+    /**
+     * Parses the order's line items into reservation batches, in the order their warehouses first appear.
+     *
+     * @throws IOException if the document or one of its items is malformed
+     */
+    static List<Batch> batches(String orderJson, int batchSize) throws IOException {
+        Map<String, List<Item>> byWarehouse = new LinkedHashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(new StringReader(orderJson))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Order must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"items".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    Item item = readItem(parser);
+                    byWarehouse.computeIfAbsent(item.warehouse, name -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+
+        List<Batch> batches = new ArrayList<>();
+        for (Map.Entry<String, List<Item>> warehouse : byWarehouse.entrySet()) {
+            List<Item> items = warehouse.getValue();
+            for (int start = 0; start < items.size(); start += batchSize) {
+                List<Item> batch = new ArrayList<>(items.subList(start, Math.min(start + batchSize, items.size())));
+                batches.add(new Batch(warehouse.getKey(), batch));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Reserves every batch from an orchestrator, with at most {@code maxConcurrency} batches in flight, counting
+     * both their hand-off and the wait for their result.
+     *
+     * @return {@code true} if every batch was reserved
+     */
+    static boolean reserve(TaskOrchestrationContext ctx, List<Batch> batches, int maxConcurrency, Duration timeout) {
+        // Hand-off activities in flight, mapped to the event that will carry their batch's result
+        Map<Task<?>, String> handOffs = new IdentityHashMap<>();
+        List<Task<?>> inFlight = new ArrayList<>();
+        boolean reserved = true;
+        int next = 0;
+        while (inFlight.size() > 0 || (reserved && next < batches.size())) {
+            while (reserved && next < batches.size() && inFlight.size() < maxConcurrency) {
+                String eventName = EVENT_PREFIX + next;
+                Task<Void> handOff = ctx.callActivity(
+                    ACTIVITY_NAME, new Request(ctx.getInstanceId(), eventName, batches.get(next++)));
+                handOffs.put(handOff, eventName);
+                inFlight.add(handOff);
+            }
+            Task<?> finished = ctx.anyOf(new ArrayList<>(inFlight)).await();
+            inFlight.remove(finished);
+            String eventName = handOffs.remove(finished);
+            try {
+                Object result = finished.await();
+                if (eventName != null) {
+                    inFlight.add(ctx.waitForExternalEvent(eventName, timeout, String.class));
+                } else {
+                    reserved &= String.valueOf(result).contains("\"success\":true");
+                }
+            } catch (TaskFailedException e) {
+                // The hand-off failed, or the result didn't arrive in time (TaskCanceledException)
+                reserved = false;
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Reads the line item at the parser's current {@code START_OBJECT}, leaving the parser at its end.
+     *
+     * @throws IOException if the item is malformed or lacks a product ID or a positive quantity
+     */
+    static Item readItem(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Line items must be JSON objects");
+        }
+        Item item = new Item();
+        item.warehouse = DEFAULT_WAREHOUSE;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "productId":
+                    item.productId = value.isScalarValue() ? parser.getValueAsString() : null;
+                    break;
+                case "quantity":
+                    item.quantity = value.isNumeric() ? parser.getIntValue() : 0;
+                    break;
+                case "warehouse":
+                    item.warehouse = value.isScalarValue() ? parser.getValueAsString() : DEFAULT_WAREHOUSE;
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        if (item.productId == null || item.quantity <= 0) {
+            throw new IOException("Line items need a productId and a positive quantity");
+        }
+        return item;
+    }
+
+    /**
+     * Activity input: line items to reserve in one warehouse.
+     */
+    static final class Batch {
+        private String warehouse;
+        private List<Item> items;
+
+        public Batch() {
+            // For deserialization
+        }
+
+        Batch(String warehouse, List<Item> items) {
+            this.warehouse = warehouse;
+            this.items = items;
+        }
+
+        public String getWarehouse() {
+            return warehouse;
+        }
+
+        public void setWarehouse(String warehouse) {
+            this.warehouse = warehouse;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    /**
+     * Input of the {@value #ACTIVITY_NAME} activity: a batch, and the event to raise its result as.
+     */
+    static final class Request extends GatewayRequest {
+        private String eventName;
+        private Batch batch;
+
+        public Request() {
+            // For deserialization
+        }
+
+        Request(String instanceId, String eventName, Batch batch) {
+            super(instanceId);
+            this.eventName = eventName;
+            this.batch = batch;
+        }
+
+        public String getEventName() {
+            return eventName;
+        }
+
+        public void setEventName(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public Batch getBatch() {
+            return batch;
+        }
+
+        public void setBatch(Batch batch) {
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * One line item to reserve or ship. The warehouse it ships from only groups items into batches, and is not
+     * serialized.
+     */
+    static final class Item {
+        private String productId;
+        private int quantity;
+        private transient String warehouse;
+
+        public Item() {
+            // For deserialization
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public void setProductId(String productId) {
+            this.productId = productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stand-in for the inventory service. Each reservation call takes {@code orders.inventory.latency}, however many
+ * items of one warehouse it carries, and always succeeds. Also holds the settings for how
+ * {@link InventoryReservation} splits and parallelizes an order's reservations.
+ */
+@Component
+class InventoryService extends SimulatedGateway {
+
+    private final int batchSize;
+    private final int maxConcurrency;
+
+    InventoryService(
+            @Value("${orders.inventory.latency:fixed:50}") String latency,
+            @Value("${orders.inventory.batch-size:1}") int batchSize,
+            @Value("${orders.inventory.max-concurrency:16}") int maxConcurrency) {
+        super("inventory", LatencyDistribution.parse(latency));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    protected String respond(String payload) {
+        return "{\"success\":true}";
+    }
+}
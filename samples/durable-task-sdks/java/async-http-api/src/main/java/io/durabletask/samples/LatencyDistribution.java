@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated response-time distribution for the gateway stand-ins, configured as a short spec string:
+ * <ul>
+ *   <li>{@code fixed:<ms>} - always the same latency</li>
+ *   <li>{@code uniform:<minMs>:<maxMs>} - uniformly distributed between the bounds</li>
+ *   <li>{@code exponential:<meanMs>} - exponentially distributed with the given mean (long tail)</li>
+ * </ul>
+ */
+final class LatencyDistribution {
+
+    private final String spec;
+    private final String type;
+    private final long first;
+    private final long second;
+
+    private LatencyDistribution(String spec, String type, long first, long second) {
+        this.spec = spec;
+        this.type = type;
+        this.first = first;
+        this.second = second;
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    if (parts.length == 2) {
+                        return new LatencyDistribution(spec, parts[0], Long.parseLong(parts[1]), 0);
+                    }
+                    break;
+                case "uniform":
+                    if (parts.length == 3) {
+                        return new LatencyDistribution(spec, parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    }
+                    break;
+                case "exponential":
+                    if (parts.length == 2) {
+                        return new LatencyDistribution(spec, parts[0], Long.parseLong(parts[1]), 0);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+    }
+
+    /**
+     * Draws the next latency in milliseconds.
+     */
+    long nextMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (type) {
+            case "uniform":
+                return first + (long) (random.nextDouble() * (second - first));
+            case "exponential":
+                return (long) (-first * Math.log(1 - random.nextDouble()));
+            default:
+                return first;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+/**
+ * Typed view of the order document submitted to {@code POST /api/orders}.
+ * <p>
+ * Only the top-level fields needed by the order pipeline are read. The document is parsed once with a
+ * streaming {@link JsonParser}, nested objects and arrays are skipped without being materialized, and parsing
+ * stops as soon as all known fields have been seen, so large item or shipping blocks after them are never read.
+ * A known field that holds an object or array reads as missing.
+ */
+final class Order {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int FIELD_ORDER_ID = 1;
+    private static final int FIELD_CUSTOMER_ID = 1 << 1;
+    private static final int FIELD_AMOUNT = 1 << 2;
+    private static final int ALL_FIELDS = FIELD_ORDER_ID | FIELD_CUSTOMER_ID | FIELD_AMOUNT;
+
+    private final String orderId;
+    private final String customerId;
+    private final BigDecimal amount;
+
+    private Order(String orderId, String customerId, BigDecimal amount) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.amount = amount;
+    }
+
+    /**
+     * Parses the top-level order fields from the given JSON document.
+     *
+     * @param orderJson the raw order document
+     * @return the parsed order; fields missing from the document are {@code null}
+     * @throws IOException if the document is not a well-formed JSON object
+     */
+    static Order parse(String orderJson) throws IOException {
+        String orderId = null;
+        String customerId = null;
+        BigDecimal amount = null;
+        int seen = 0;
+
+        // createParser(String) copies documents of up to 32K characters whole before the first token; a Reader is
+        // consumed in small chunks, so stopping early skips the rest of the order
+        try (JsonParser parser = JSON_FACTORY.createParser(new StringReader(orderJson))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Order must be a JSON object");
+            }
+            while (seen != ALL_FIELDS && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "orderId":
+                        orderId = value.isScalarValue() ? parser.getValueAsString() : null;
+                        seen |= FIELD_ORDER_ID;
+                        break;
+                    case "customerId":
+                        customerId = value.isScalarValue() ? parser.getValueAsString() : null;
+                        seen |= FIELD_CUSTOMER_ID;
+                        break;
+                    case "amount":
+                        amount = value.isNumeric() ? parser.getDecimalValue() : null;
+                        seen |= FIELD_AMOUNT;
+                        break;
+                    default:
+                        break;
+                }
+                if (value.isStructStart()) {
+                    // Skip nested objects/arrays (e.g. items, shippingAddress) without building them, including
+                    // ones given for a known field, so their contents are never read as top-level fields
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Order(orderId, customerId, amount);
+    }
+
+    String getOrderId() {
+        return orderId;
+    }
+
+    String getCustomerId() {
+        return customerId;
+    }
+
+    BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * An order is valid when it carries a numeric amount greater than zero.
+     */
+    boolean isValid() {
+        return amount != null && amount.signum() > 0;
+    }
+}
@@ -0,0 +1,276 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for new orders, based on how many order orchestrations are still in flight.
+ * <p>
+ * The in-flight count is kept locally: it is incremented for every admitted order and decremented by the episode
+ * that completes an order orchestration ({@link #tracked}), so admitting an order costs no backend call. The
+ * completion rate is the number of those completions per {@code orders.admission.refresh-interval-ms}, smoothed
+ * with an exponentially weighted moving average. Once the count reaches {@code orders.admission.max-in-flight}, new
+ * orders are rejected with a {@code Retry-After} hint that estimates how long the backlog needs to drain below the
+ * limit.
+ * <p>
+ * The local count drifts from the backend when orders finish without completing here: when they are terminated,
+ * fail, or run on another replica, or when a completing episode is retried. So every
+ * {@code orders.admission.reconcile-interval} it is corrected against the PENDING and RUNNING order instances of
+ * every lane of {@link OrderLanes}, reading at most {@code orders.admission.reconcile-max-pages} pages of 1000
+ * instances per lane. A backlog too large to count within that cap can only raise the local count, never lower
+ * it.
+ * <p>
+ * The limit, in-flight count and completion rate are published as {@code orders.admission.*} gauges.
+ */
+@Component
+class OrderAdmission {
+    private static final Logger logger = LoggerFactory.getLogger(OrderAdmission.class);
+    private static final List<OrchestrationRuntimeStatus> IN_FLIGHT_STATUSES =
+        Arrays.asList(OrchestrationRuntimeStatus.PENDING, OrchestrationRuntimeStatus.RUNNING);
+    private static final double RATE_SMOOTHING = 0.3;
+    private static final int PAGE_SIZE = 1000;
+
+    private final OrderLanes lanes;
+    private final long maxInFlight;
+    private final Duration lookback;
+    private final int reconcileMaxPages;
+    private final long maxRetryAfterSeconds;
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong completedSinceTick = new AtomicLong();
+    private final Counter rejected;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile double completionsPerSecond;
+    private long lastTickNanos = System.nanoTime();
+
+    OrderAdmission(
+            OrderLanes lanes,
+            MeterRegistry registry,
+            @Value("${orders.admission.max-in-flight:0}") long maxInFlight,
+            @Value("${orders.admission.refresh-interval-ms:2000}") long refreshIntervalMs,
+            @Value("${orders.admission.reconcile-interval:PT5M}") Duration reconcileInterval,
+            @Value("${orders.admission.reconcile-max-pages:10}") int reconcileMaxPages,
+            @Value("${orders.admission.lookback:PT1H}") Duration lookback,
+            @Value("${orders.admission.max-retry-after-seconds:60}") long maxRetryAfterSeconds) {
+        this.lanes = lanes;
+        this.maxInFlight = maxInFlight;
+        this.lookback = lookback;
+        this.reconcileMaxPages = reconcileMaxPages;
+        this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+
+        Gauge.builder("orders.admission.limit", () -> maxInFlight)
+            .description("Maximum number of in-flight orders before new orders are rejected")
+            .register(registry);
+        Gauge.builder("orders.admission.in_flight", inFlight, AtomicLong::get)
+            .description("Order orchestrations scheduled but not yet finished")
+            .register(registry);
+        Gauge.builder("orders.admission.completion_rate", () -> completionsPerSecond)
+            .description("Smoothed order completions per second")
+            .register(registry);
+        this.rejected = Counter.builder("orders.admission.rejected")
+            .description("Orders rejected because the in-flight limit was reached")
+            .register(registry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (isEnabled()) {
+            this.scheduler.scheduleWithFixedDelay(
+                this::tick, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+            this.scheduler.scheduleWithFixedDelay(
+                this::reconcile, 0, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Admits one new order, or throws if the in-flight limit has been reached.
+     * Call {@link #release()} if the admitted order is not scheduled after all.
+     *
+     * @throws AdmissionRejectedException if the order must be retried later
+     */
+    void admit() {
+        if (!isEnabled()) {
+            return;
+        }
+        while (true) {
+            long current = inFlight.get();
+            if (current >= maxInFlight) {
+                rejected.increment();
+                throw new AdmissionRejectedException(retryAfterSeconds(current));
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit taken by {@link #admit()} for an order that was not scheduled.
+     */
+    void release() {
+        if (isEnabled()) {
+            decrement();
+        }
+    }
+
+    /**
+     * Wraps an order orchestration registration so that the episode that completes an instance, never a replay,
+     * takes the order off the in-flight count.
+     */
+    TaskOrchestrationFactory tracked(TaskOrchestrationFactory factory) {
+        return new TaskOrchestrationFactory() {
+            @Override
+            public String getName() { return factory.getName(); }
+
+            @Override
+            public TaskOrchestration create() {
+                TaskOrchestration orchestration = factory.create();
+                return ctx -> {
+                    // As in PipelineMetrics, the orchestrator only returns normally once it has completed
+                    orchestration.run(ctx);
+                    if (!ctx.getIsReplaying()) {
+                        completed();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Takes a completed order off the in-flight count and counts it towards the completion rate.
+     */
+    void completed() {
+        if (isEnabled()) {
+            decrement();
+            completedSinceTick.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    long getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean isEnabled() {
+        return maxInFlight > 0;
+    }
+
+    private void decrement() {
+        // Completions of orders admitted elsewhere, or counted twice, must not take the count below zero
+        inFlight.getAndUpdate(current -> Math.max(0, current - 1));
+    }
+
+    private long retryAfterSeconds(long current) {
+        double rate = completionsPerSecond;
+        if (rate <= 0) {
+            return maxRetryAfterSeconds;
+        }
+        long excess = current - maxInFlight + 1;
+        long seconds = (long) Math.ceil(excess / rate);
+        return Math.max(1, Math.min(seconds, maxRetryAfterSeconds));
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastTickNanos) / 1_000_000_000.0;
+        lastTickNanos = now;
+        if (elapsedSeconds > 0) {
+            double observed = completedSinceTick.getAndSet(0) / elapsedSeconds;
+            completionsPerSecond = RATE_SMOOTHING * observed + (1 - RATE_SMOOTHING) * completionsPerSecond;
+        }
+    }
+
+    /**
+     * Corrects the local count against the backend.
+     */
+    void reconcile() {
+        try {
+            long estimate = inFlight.get();
+            AtomicBoolean capped = new AtomicBoolean();
+            long current = 0;
+            for (DurableTaskClient client : lanes.clients()) {
+                current += countInFlight(client, capped);
+            }
+            // Correct the estimate by the difference rather than overwriting it, so orders admitted or completed
+            // while the backend was being counted stay counted. A capped count is only a lower bound.
+            if (!capped.get() || current > estimate) {
+                inFlight.addAndGet(current - estimate);
+            }
+            if (capped.get()) {
+                logger.debug("In-flight orders counted up to the page cap: at least {}", current);
+            }
+        } catch (Exception e) {
+            // Keep the local count until the backend can be reached again
+            logger.warn("Failed to reconcile the in-flight order count: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the lane's in-flight orders, setting {@code capped} if the page cap was reached first.
+     */
+    private long countInFlight(DurableTaskClient client, AtomicBoolean capped) {
+        OrchestrationStatusQuery query = new OrchestrationStatusQuery()
+            .setRuntimeStatusList(IN_FLIGHT_STATUSES)
+            .setCreatedTimeFrom(Instant.now().minus(lookback))
+            .setMaxInstanceCount(PAGE_SIZE)
+            .setFetchInputsAndOutputs(false);
+
+        long count = 0;
+        for (int page = 0; page < reconcileMaxPages; page++) {
+            OrchestrationStatusQueryResult result = client.queryInstances(query);
+            for (OrchestrationMetadata instance : result.getOrchestrationState()) {
+                if ("ProcessOrderOrchestration".equals(instance.getName())) {
+                    count++;
+                }
+            }
+            String continuationToken = result.getContinuationToken();
+            if (continuationToken == null || continuationToken.isEmpty() || result.getOrchestrationState().isEmpty()) {
+                return count;
+            }
+            query.setContinuationToken(continuationToken);
+        }
+        capped.set(true);
+        return count;
+    }
+
+    /**
+     * Thrown by {@link #admit()} when the in-flight limit has been reached.
+     */
+    static final class AdmissionRejectedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        AdmissionRejectedException(long retryAfterSeconds) {
+            super("Too many orders in flight; retry after " + retryAfterSeconds + " s");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Routes orders between the standard lane and the optional express lane.
+ * <p>
+ * A single worker takes its work items from its task hub in order, so express orders queued behind a flood of
+ * standard ones wait for all of them. When {@code orders.lanes.express.task-hub} is set, express orders are
+ * scheduled on that task hub instead, where a dedicated worker with its own threads serves only them; standard
+ * traffic can saturate its lane without adding to express latency. Express instance IDs start with
+ * {@value #EXPRESS_PREFIX}, so any instance ID can be routed back to the client for its task hub.
+ * <p>
+ * Without an express lane, express orders are processed in the standard lane.
+ */
+@Component
+class OrderLanes {
+    static final String EXPRESS_PREFIX = "express-";
+
+    private final DurableTaskClient standard;
+    private final DurableTaskClient express;
+
+    OrderLanes(
+            DurableTaskClient standard,
+            @Qualifier("expressDurableTaskClient") ObjectProvider<DurableTaskClient> express) {
+        this.standard = standard;
+        this.express = express.getIfAvailable();
+    }
+
+    /**
+     * Parses the {@code priority} of a new order: {@code standard} (the default) or {@code express}.
+     *
+     * @return {@code true} for express orders
+     * @throws IllegalArgumentException for any other value
+     */
+    static boolean isExpress(String priority) {
+        if (priority == null || priority.isEmpty()) {
+            return false;
+        }
+        switch (priority.toLowerCase(Locale.ROOT)) {
+            case "standard":
+                return false;
+            case "express":
+                return true;
+            default:
+                throw new IllegalArgumentException("priority must be standard or express");
+        }
+    }
+
+    /**
+     * Returns the instance ID to schedule an order under: {@code instanceId} itself for the standard lane, which
+     * may be {@code null} to let the client pick one, or the same ID (or a random one) with the express prefix.
+     */
+    String instanceIdFor(boolean express, String instanceId) {
+        if (!express || this.express == null) {
+            return instanceId;
+        }
+        return EXPRESS_PREFIX + (instanceId != null ? instanceId : UUID.randomUUID().toString());
+    }
+
+    /**
+     * Returns the client for the task hub that holds the given instance.
+     */
+    DurableTaskClient client(String instanceId) {
+        if (express != null && instanceId != null && instanceId.startsWith(EXPRESS_PREFIX)) {
+            return express;
+        }
+        return standard;
+    }
+
+    /**
+     * Returns the client for the standard lane.
+     */
+    DurableTaskClient standard() {
+        return standard;
+    }
+
+    /**
+     * Returns the client for the express lane, or {@code null} when express orders use the standard lane.
+     */
+    DurableTaskClient express() {
+        return express;
+    }
+
+    /**
+     * Returns the clients of every lane, the standard lane first. Queries over all orders need to ask each of them,
+     * since each lane's task hub only holds its own orders.
+     */
+    List<DurableTaskClient> clients() {
+        return express != null ? Arrays.asList(standard, express) : Collections.singletonList(standard);
+    }
+}
@@ -0,0 +1,190 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.durabletask.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lists orders page by page for {@code GET /api/orders}, using the scheduler's instance query.
+ * <p>
+ * Orders can be filtered by runtime status and creation time. Each page holds at most {@code pageSize} orders
+ * (capped by {@code orders.list.max-page-size}) and carries a {@code continuationToken} to pass back for the
+ * next page, or {@code null} on the last one. Inputs and outputs are left out unless asked for, so a page only
+ * moves the small per-instance metadata.
+ * <p>
+ * Each lane of {@link OrderLanes} keeps its orders in its own task hub, so the listing pages through the standard
+ * lane and then the express lane. A page holds orders of one lane only, so the last page of the standard lane may
+ * be short. The continuation token names the lane it continues ({@code standard:...} or {@code express:...}).
+ * <p>
+ * The page is written straight to the response with a
+ * {@link JsonGenerator} instead of being built up as a string first:
+ * <pre>
+ * {"orders":[{"id":"...","name":"...","status":"RUNNING","createdAt":"...","lastUpdatedAt":"..."}, ...],
+ *  "continuationToken":"..."}
+ * </pre>
+ */
+@Component
+class OrderListing {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String STANDARD_TOKEN_PREFIX = "standard:";
+    private static final String EXPRESS_TOKEN_PREFIX = "express:";
+
+    private final OrderLanes lanes;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    OrderListing(
+            OrderLanes lanes,
+            @Value("${orders.list.default-page-size:100}") int defaultPageSize,
+            @Value("${orders.list.max-page-size:1000}") int maxPageSize) {
+        this.lanes = lanes;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Validates the request parameters and runs the query for one page.
+     *
+     * @throws IllegalArgumentException if a status, timestamp, page size or continuation token is not valid
+     */
+    Page fetchPage(
+            List<String> statuses,
+            String createdFrom,
+            String createdTo,
+            Integer pageSize,
+            String continuationToken,
+            boolean includePayloads) {
+        OrchestrationStatusQuery query = new OrchestrationStatusQuery()
+            .setMaxInstanceCount(pageSize(pageSize))
+            .setFetchInputsAndOutputs(includePayloads);
+        if (statuses != null && !statuses.isEmpty()) {
+            query.setRuntimeStatusList(runtimeStatuses(statuses));
+        }
+        if (createdFrom != null && !createdFrom.isEmpty()) {
+            query.setCreatedTimeFrom(instant("createdFrom", createdFrom));
+        }
+        if (createdTo != null && !createdTo.isEmpty()) {
+            query.setCreatedTimeTo(instant("createdTo", createdTo));
+        }
+
+        boolean express = false;
+        String laneToken = null;
+        if (continuationToken != null && !continuationToken.isEmpty()) {
+            if (continuationToken.startsWith(STANDARD_TOKEN_PREFIX)) {
+                laneToken = continuationToken.substring(STANDARD_TOKEN_PREFIX.length());
+            } else if (continuationToken.startsWith(EXPRESS_TOKEN_PREFIX) && lanes.express() != null) {
+                express = true;
+                laneToken = continuationToken.substring(EXPRESS_TOKEN_PREFIX.length());
+            } else {
+                throw new IllegalArgumentException("Invalid continuationToken");
+            }
+        }
+        // An express token without a lane token starts at the express lane's first page
+        if (laneToken != null && !laneToken.isEmpty()) {
+            query.setContinuationToken(laneToken);
+        }
+        OrchestrationStatusQueryResult result = (express ? lanes.express() : lanes.standard()).queryInstances(query);
+
+        String next = result.getContinuationToken();
+        if (next != null && !next.isEmpty()) {
+            next = (express ? EXPRESS_TOKEN_PREFIX : STANDARD_TOKEN_PREFIX) + next;
+        } else if (!express && lanes.express() != null) {
+            next = EXPRESS_TOKEN_PREFIX;
+        } else {
+            next = null;
+        }
+        return new Page(result.getOrchestrationState(), next);
+    }
+
+    /**
+     * Writes the page as JSON to {@code out}.
+     */
+    void write(Page page, boolean includePayloads, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            // Leave the response stream to the servlet container
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeArrayFieldStart("orders");
+            for (OrchestrationMetadata metadata : page.orders) {
+                json.writeStartObject();
+                json.writeStringField("id", metadata.getInstanceId());
+                json.writeStringField("name", metadata.getName());
+                json.writeStringField("status", metadata.getRuntimeStatus().toString());
+                json.writeStringField("createdAt", String.valueOf(metadata.getCreatedAt()));
+                json.writeStringField("lastUpdatedAt", String.valueOf(metadata.getLastUpdatedAt()));
+                if (includePayloads) {
+                    // Serialized payloads are JSON already, so embed them as-is
+                    writeRawField(json, "input", metadata.getSerializedInput());
+                    writeRawField(json, "output", metadata.getSerializedOutput());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeStringField("continuationToken", page.continuationToken);
+            json.writeEndObject();
+        }
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested < 1 || requested > maxPageSize) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + maxPageSize);
+        }
+        return requested;
+    }
+
+    private static List<OrchestrationRuntimeStatus> runtimeStatuses(List<String> statuses) {
+        List<OrchestrationRuntimeStatus> runtimeStatuses = new ArrayList<>(statuses.size());
+        for (String status : statuses) {
+            try {
+                runtimeStatuses.add(OrchestrationRuntimeStatus.valueOf(status.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown status: " + status);
+            }
+        }
+        return runtimeStatuses;
+    }
+
+    private static Instant instant(String name, String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant such as 2025-01-31T00:00:00Z");
+        }
+    }
+
+    private static void writeRawField(JsonGenerator json, String name, String rawJson) throws IOException {
+        if (rawJson != null && !rawJson.isEmpty()) {
+            json.writeFieldName(name);
+            json.writeRawValue(rawJson);
+        }
+    }
+
+    /**
+     * One page of orders, and the token for the next page or {@code null} after the last one.
+     */
+    static final class Page {
+        private final List<OrchestrationMetadata> orders;
+        private final String continuationToken;
+
+        Page(List<OrchestrationMetadata> orders, String continuationToken) {
+            this.orders = orders;
+            this.continuationToken = continuationToken;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * What each later step of {@code ProcessOrderOrchestration} needs from the order document, so the activity inputs
+ * written to history carry only those fields.
+ * <p>
+ * The projection depends on nothing but the order document, so the orchestrator builds it inline from its own
+ * input, without an activity dispatch or a history event. Large orders arrive as claim-check references, and
+ * reading them from the {@link ClaimCheckStore} is I/O, so those are projected by the {@value #ACTIVITY_NAME}
+ * activity, which takes the reference as its input and whose result replays read back from history. A document
+ * that can't be parsed is reported as {@linkplain #isMalformed() malformed} rather than as a failure.
+ */
+final class OrderProjection {
+    static final String ACTIVITY_NAME = "ProjectOrder";
+
+    private boolean malformed;
+    private List<InventoryReservation.Batch> batches;
+    private PaymentRequest paymentRequest;
+    private ShipmentRequest shipmentRequest;
+
+    public OrderProjection() {
+        // For deserialization
+    }
+
+    /**
+     * Projects the step inputs from an order document. The gateway requests carry no instance ID until
+     * {@link #forInstance} sets it.
+     */
+    static OrderProjection project(String orderJson, int batchSize) {
+        OrderProjection projection = new OrderProjection();
+        try {
+            List<InventoryReservation.Batch> batches = InventoryReservation.batches(orderJson, batchSize);
+            PaymentRequest paymentRequest = PaymentRequest.from(null, orderJson);
+            ShipmentRequest shipmentRequest = ShipmentRequest.from(null, orderJson);
+            projection.batches = batches;
+            projection.paymentRequest = paymentRequest;
+            projection.shipmentRequest = shipmentRequest;
+        } catch (IOException e) {
+            projection.malformed = true;
+        }
+        return projection;
+    }
+
+    /**
+     * Addresses the gateway requests to the given order instance, so their responses are raised back to it.
+     */
+    OrderProjection forInstance(String instanceId) {
+        if (!malformed) {
+            paymentRequest.setInstanceId(instanceId);
+            shipmentRequest.setInstanceId(instanceId);
+        }
+        return this;
+    }
+
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    public void setMalformed(boolean malformed) {
+        this.malformed = malformed;
+    }
+
+    public List<InventoryReservation.Batch> getBatches() {
+        return batches;
+    }
+
+    public void setBatches(List<InventoryReservation.Batch> batches) {
+        this.batches = batches;
+    }
+
+    public PaymentRequest getPaymentRequest() {
+        return paymentRequest;
+    }
+
+    public void setPaymentRequest(PaymentRequest paymentRequest) {
+        this.paymentRequest = paymentRequest;
+    }
+
+    public ShipmentRequest getShipmentRequest() {
+        return shipmentRequest;
+    }
+
+    public void setShipmentRequest(ShipmentRequest shipmentRequest) {
+        this.shipmentRequest = shipmentRequest;
+    }
+}
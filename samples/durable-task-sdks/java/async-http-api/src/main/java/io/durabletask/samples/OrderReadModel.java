@@ -0,0 +1,240 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Local read model of finished orders, so {@code GET /api/orders/{id}} can answer them without a scheduler call.
+ * <p>
+ * The episode of {@code ProcessOrderOrchestration} that completes an order appends the order's status and output
+ * to a log file under {@code orders.read-model.directory}, and an in-memory hash index maps each instance ID to
+ * the position of its latest record. When an instance ID is reused, because a purged order was submitted again
+ * with idempotent intake, the old record is {@linkplain #forget forgotten} as the new instance starts: by the
+ * intake that starts it, and by the worker that runs its first episode. A process that did neither can still
+ * serve the old result, so with several replicas only reuse instance IDs of orders the replicas have not served. The log is memory-mapped in segments of
+ * {@code orders.read-model.segment-bytes}, so a lookup is a hash probe and a copy out of the page cache. On
+ * startup the index is rebuilt by scanning the log; the scan stops at the first record that is incomplete or fails
+ * its CRC-32, and appends continue from there.
+ * <p>
+ * Each record is {@code [length][crc32][instance ID][status][output]}, with the length written last so a record is
+ * only visible once it is complete; a record with an empty status forgets the instance. Records never span segments; the rest of a segment that can't fit the next
+ * record is skipped. The log is not forced to disk on every append and is never compacted: it is a projection, so
+ * a record lost in a crash only means that order is read from the scheduler again. Each file must be used by one
+ * process only. Lookups are counted as {@code orders.read-model.reads} tagged {@code result=hit|miss}.
+ */
+@Component
+class OrderReadModel {
+    private static final Logger logger = LoggerFactory.getLogger(OrderReadModel.class);
+    private static final int HEADER_BYTES = 8;
+    private static final int END_OF_SEGMENT = -1;
+
+    private final FileChannel channel;
+    private final int segmentBytes;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private long writePosition;
+
+    OrderReadModel(
+            MeterRegistry registry,
+            @Value("${orders.read-model.directory:${java.io.tmpdir}/orders-read-model}") String directory,
+            @Value("${orders.read-model.segment-bytes:67108864}") int segmentBytes) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        this.channel = FileChannel.open(dir.resolve("orders.log"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentBytes = segmentBytes;
+        rebuild();
+
+        this.hits = Counter.builder("orders.read-model.reads").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("orders.read-model.reads").tag("result", "miss").register(registry);
+        Gauge.builder("orders.read-model.orders", index, Map::size)
+            .description("Orders in the local read model")
+            .register(registry);
+    }
+
+    /**
+     * Records the final status and output of an order, replacing any earlier record of the same instance.
+     */
+    synchronized void publish(String instanceId, String status, String output) {
+        index.put(instanceId, append(instanceId, status, output));
+    }
+
+    /**
+     * Drops the record of an instance, if there is one, so that a new instance with the same ID isn't answered
+     * with the result of the old one.
+     */
+    synchronized void forget(String instanceId) {
+        if (index.containsKey(instanceId)) {
+            append(instanceId, "", null);
+            index.remove(instanceId);
+        }
+    }
+
+    private long append(String instanceId, String status, String output) {
+        byte[] id = instanceId.getBytes(StandardCharsets.UTF_8);
+        byte[] statusBytes = status.getBytes(StandardCharsets.UTF_8);
+        byte[] outputBytes = output != null ? output.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer payload = ByteBuffer.allocate(2 + id.length + 2 + statusBytes.length + 4 + outputBytes.length);
+        payload.putShort((short) id.length).put(id);
+        payload.putShort((short) statusBytes.length).put(statusBytes);
+        payload.putInt(outputBytes.length).put(outputBytes);
+        payload.flip();
+
+        // Every record leaves room behind it for the int that marks the end of the log or of the segment
+        int recordBytes = HEADER_BYTES + payload.remaining();
+        if (recordBytes + 4 > segmentBytes) {
+            throw new IllegalArgumentException("Order " + instanceId + " is too large for the read model");
+        }
+        int offset = (int) (writePosition % segmentBytes);
+        if (offset + recordBytes + 4 > segmentBytes) {
+            segment(writePosition).putInt(offset, END_OF_SEGMENT);
+            writePosition += segmentBytes - offset;
+            offset = 0;
+        }
+
+        MappedByteBuffer segment = segment(writePosition);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        ByteBuffer view = segment.duplicate();
+        view.position(offset + HEADER_BYTES);
+        view.put(payload);
+        segment.putInt(offset + 4, (int) crc.getValue());
+        segment.putInt(offset + recordBytes, 0);
+        segment.putInt(offset, recordBytes - HEADER_BYTES);
+
+        long position = writePosition;
+        writePosition += recordBytes;
+        return position;
+    }
+
+    /**
+     * Returns the output of a finished order, or {@code null} if it is not in the read model. An order that
+     * finished without output returns an empty string.
+     */
+    String getOutput(String instanceId) {
+        FinishedOrder order = get(instanceId);
+        return order != null ? order.getOutput() : null;
+    }
+
+    /**
+     * Returns the status and output of a finished order, or {@code null} if it is not in the read model.
+     */
+    FinishedOrder get(String instanceId) {
+        Long position = index.get(instanceId);
+        if (position == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        ByteBuffer record = segments.get((int) (position / segmentBytes)).duplicate();
+        record.position((int) (position % segmentBytes) + HEADER_BYTES);
+        skipString(record);
+        byte[] status = new byte[record.getShort() & 0xFFFF];
+        record.get(status);
+        byte[] output = new byte[record.getInt()];
+        record.get(output);
+        return new FinishedOrder(
+            new String(status, StandardCharsets.UTF_8), new String(output, StandardCharsets.UTF_8));
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        // Mapped segments stay readable after the channel is closed
+        channel.close();
+    }
+
+    private void rebuild() throws IOException {
+        long size = channel.size();
+        for (long start = 0; start < size; start += segmentBytes) {
+            segment(start);
+        }
+
+        long position = 0;
+        int records = 0;
+        byte[] scratch = new byte[0];
+        while (position / segmentBytes < segments.size()) {
+            MappedByteBuffer segment = segments.get((int) (position / segmentBytes));
+            int offset = (int) (position % segmentBytes);
+            int length = segment.getInt(offset);
+            if (length == END_OF_SEGMENT) {
+                position += segmentBytes - offset;
+                continue;
+            }
+            if (length <= 0 || offset + HEADER_BYTES + length + 4 > segmentBytes) {
+                break;
+            }
+
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            ByteBuffer record = segment.duplicate();
+            record.position(offset + HEADER_BYTES);
+            record.get(scratch, 0, length);
+            CRC32 crc = new CRC32();
+            crc.update(scratch, 0, length);
+            if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                // Torn by a crash mid-append; later records, if any, are overwritten by new ones
+                logger.warn("Read model log is damaged at position {}; continuing from there", position);
+                break;
+            }
+            int idLength = ((scratch[0] & 0xFF) << 8) | (scratch[1] & 0xFF);
+            String instanceId = new String(scratch, 2, idLength, StandardCharsets.UTF_8);
+            int statusLength = ((scratch[2 + idLength] & 0xFF) << 8) | (scratch[3 + idLength] & 0xFF);
+            if (statusLength > 0) {
+                index.put(instanceId, position);
+            } else {
+                index.remove(instanceId);
+            }
+            records++;
+            position += HEADER_BYTES + length;
+        }
+        writePosition = position;
+        logger.info("Rebuilt the order read model index: {} records, {} orders, {} bytes",
+            records, index.size(), writePosition);
+    }
+
+    private MappedByteBuffer segment(long position) {
+        int number = (int) (position / segmentBytes);
+        while (segments.size() <= number) {
+            try {
+                // Mapping past the end of the file extends it
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentBytes,
+                    segmentBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map read model segment " + segments.size(), e);
+            }
+        }
+        return segments.get(number);
+    }
+
+    private static void skipString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        record.position(record.position() + length);
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.microsoft.durabletask.OrchestrationMetadata;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Output of {@code ProcessOrderOrchestration}: a JSON document such as
+ * {@code {"status":"SUCCESS","payment":{...},"shipment":{...}}} or {@code {"status":"FAILED","message":"..."}}.
+ * <p>
+ * The document is written with a streaming {@link JsonGenerator}, and the gateway responses are embedded as-is.
+ * It is serialized into the orchestration output as raw JSON rather than as a JSON string, so the output stored
+ * by the scheduler is the document itself and can be returned to HTTP clients without being decoded and encoded
+ * again (see {@link #outputJson}).
+ */
+@JsonSerialize(using = OrderResult.RawJsonSerializer.class)
+final class OrderResult {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String json;
+
+    private OrderResult(String json) {
+        this.json = json;
+    }
+
+    static OrderResult success(String paymentJson, String shipmentJson) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("status", "SUCCESS");
+            generator.writeFieldName("payment");
+            generator.writeRawValue(paymentJson);
+            generator.writeFieldName("shipment");
+            generator.writeRawValue(shipmentJson);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new OrderResult(writer.toString());
+    }
+
+    static OrderResult failed(String message) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("status", "FAILED");
+            generator.writeStringField("message", message);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new OrderResult(writer.toString());
+    }
+
+    /**
+     * Returns an order's output as a JSON document, or {@code null} if it has none.
+     * <p>
+     * The serialized output is used as-is. Orders completed before outputs were written as raw JSON hold the
+     * document as a JSON string, which is decoded once.
+     */
+    static String outputJson(OrchestrationMetadata metadata) {
+        String serialized = metadata.getSerializedOutput();
+        if (serialized == null || serialized.isEmpty() || serialized.charAt(0) != '"') {
+            return serialized;
+        }
+        return metadata.readOutputAs(String.class);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    static final class RawJsonSerializer extends JsonSerializer<OrderResult> {
+        @Override
+        public void serialize(OrderResult value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(value.json);
+        }
+    }
+}
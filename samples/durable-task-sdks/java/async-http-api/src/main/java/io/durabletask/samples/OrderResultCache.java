@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microsoft.durabletask.OrchestrationRuntimeStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of the runtime status and output of finished orders.
+ * <p>
+ * Once an order orchestration is COMPLETED, FAILED or TERMINATED its output can no longer change, so it is safe
+ * to serve repeated reads from memory. The status is kept with the output, since failed and terminated orders can
+ * carry an output too. The cache is bounded by the approximate heap size of the cached outputs
+ * ({@code orders.result-cache.max-bytes}) and uses Caffeine's W-TinyLFU eviction, which keeps frequently read
+ * orders over ones that were read once. Hit, miss and eviction counts are published to Micrometer under the
+ * {@code cache.*} meters tagged {@code cache=orders.results}.
+ */
+@Component
+class OrderResultCache {
+
+    private final Cache<String, FinishedOrder> cache;
+
+    OrderResultCache(MeterRegistry registry, @Value("${orders.result-cache.max-bytes:67108864}") long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher(OrderResultCache::weigh)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(registry, this.cache, "orders.results");
+    }
+
+    /**
+     * Returns the cached output of a finished order, or {@code null} if the order is not cached.
+     * An order that finished without output is cached as an empty string.
+     */
+    String get(String instanceId) {
+        FinishedOrder order = cache.getIfPresent(instanceId);
+        return order != null ? order.getOutput() : null;
+    }
+
+    /**
+     * Returns the cached status and output of a finished order, or {@code null} if the order is not cached.
+     */
+    FinishedOrder getFinished(String instanceId) {
+        return cache.getIfPresent(instanceId);
+    }
+
+    /**
+     * Caches the output of an order that has reached the given terminal status.
+     */
+    void put(String instanceId, OrchestrationRuntimeStatus status, String output) {
+        cache.put(instanceId, new FinishedOrder(status.toString(), output));
+    }
+
+    /**
+     * Drops the cached output of an instance, so that a new instance with the same ID isn't answered with it.
+     */
+    void invalidate(String instanceId) {
+        cache.invalidate(instanceId);
+    }
+
+    private static int weigh(String instanceId, FinishedOrder order) {
+        // Approximate retained size: two bytes per char plus a fixed per-entry overhead
+        long bytes = 2L * (instanceId.length() + order.getStatus().length() + order.getOutput().length()) + 96;
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.OrchestrationMetadata;
+import com.microsoft.durabletask.OrchestrationRuntimeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Single background poller shared by every client waiting on an order (SSE streams and long-polls).
+ * <p>
+ * Each tick fetches the status of every watched instance once, no matter how many subscribers are waiting on
+ * it, and notifies subscribers only when the runtime status changes. When an instance reaches a terminal
+ * state its payload is fetched once, delivered to all subscribers, and the instance is no longer watched.
+ */
+@Component
+class OrderStatusWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusWatcher.class);
+
+    private final SingleFlightReads reads;
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    OrderStatusWatcher(
+            SingleFlightReads reads,
+            @Value("${orders.watch.poll-interval-ms:500}") long pollIntervalMs) {
+        this.reads = reads;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-status-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns {@code true} if the given status can no longer change.
+     */
+    static boolean isTerminal(OrchestrationRuntimeStatus status) {
+        return status == OrchestrationRuntimeStatus.COMPLETED
+            || status == OrchestrationRuntimeStatus.FAILED
+            || status == OrchestrationRuntimeStatus.TERMINATED;
+    }
+
+    /**
+     * Subscribes to status changes of an order instance.
+     * <p>
+     * The listener is called on the watcher thread with the latest metadata whenever the runtime status changes.
+     * The last call carries the metadata of a terminal instance including its output, or {@code null} if the
+     * instance does not exist. If the status is already known the listener is called immediately.
+     *
+     * @return a handle that stops the subscription
+     */
+    Subscription subscribe(String instanceId, Consumer<OrchestrationMetadata> listener) {
+        while (true) {
+            Watch watch = watches.computeIfAbsent(instanceId, id -> new Watch());
+            OrchestrationMetadata current;
+            synchronized (watch) {
+                if (watch.closed) {
+                    // Raced with a terminal notification; that watch is gone, so start a new one
+                    continue;
+                }
+                watch.listeners.add(listener);
+                current = watch.lastSeen;
+            }
+            if (current != null) {
+                listener.accept(current);
+            }
+            return () -> unsubscribe(instanceId, watch, listener);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void unsubscribe(String instanceId, Watch watch, Consumer<OrchestrationMetadata> listener) {
+        synchronized (watch) {
+            watch.listeners.remove(listener);
+            if (watch.listeners.isEmpty() && !watch.closed) {
+                watch.closed = true;
+                watches.remove(instanceId, watch);
+            }
+        }
+    }
+
+    private void poll() {
+        for (Map.Entry<String, Watch> entry : watches.entrySet()) {
+            String instanceId = entry.getKey();
+            Watch watch = entry.getValue();
+            try {
+                OrchestrationMetadata metadata = reads.getInstanceMetadata(instanceId, false);
+                if (metadata == null || !metadata.isInstanceFound()) {
+                    close(instanceId, watch, null);
+                } else if (isTerminal(metadata.getRuntimeStatus())) {
+                    // Fetch the output only once, when the instance finishes
+                    close(instanceId, watch, reads.getInstanceMetadata(instanceId, true));
+                } else if (watch.lastSeen == null || watch.lastSeen.getRuntimeStatus() != metadata.getRuntimeStatus()) {
+                    notify(watch, metadata, false);
+                }
+            } catch (Exception e) {
+                // Keep watching; a transient backend error must not end every subscription
+                logger.warn("Failed to poll status of order {}: {}", instanceId, e.getMessage());
+            }
+        }
+    }
+
+    private void close(String instanceId, Watch watch, OrchestrationMetadata metadata) {
+        watches.remove(instanceId, watch);
+        notify(watch, metadata, true);
+    }
+
+    private static void notify(Watch watch, OrchestrationMetadata metadata, boolean last) {
+        List<Consumer<OrchestrationMetadata>> listeners;
+        synchronized (watch) {
+            watch.lastSeen = metadata;
+            watch.closed = last;
+            listeners = watch.listeners;
+        }
+        for (Consumer<OrchestrationMetadata> listener : listeners) {
+            try {
+                listener.accept(metadata);
+            } catch (Exception e) {
+                logger.warn("Order status listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handle returned by {@link #subscribe}.
+     */
+    interface Subscription {
+        void cancel();
+    }
+
+    private static final class Watch {
+        final List<Consumer<OrchestrationMetadata>> listeners = new CopyOnWriteArrayList<>();
+        volatile OrchestrationMetadata lastSeen;
+        boolean closed;
+    }
+}
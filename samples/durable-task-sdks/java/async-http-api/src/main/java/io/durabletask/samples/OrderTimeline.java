@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.TaskOrchestrationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-step timestamps of one order, recorded by {@code ProcessOrderOrchestration} in its custom status.
+ * <p>
+ * The client has no API for reading an instance's history, so the orchestration keeps the part of it that matters
+ * for latency itself: when each step was scheduled and when its result arrived, both taken from the
+ * orchestration's replay-safe clock, and, for the gateway steps, when the activity started on a worker, which the
+ * activity returns as its result. The custom status is rewritten whenever a step is recorded, so it is current
+ * whenever the orchestration is waiting. All times are epoch milliseconds; worker start times come from the
+ * worker's clock.
+ */
+final class OrderTimeline {
+
+    private long startedAt;
+    private List<Step> steps = new ArrayList<>();
+
+    public OrderTimeline() {
+        // For deserialization
+    }
+
+    /**
+     * Starts the timeline of the orchestration's current execution.
+     */
+    static OrderTimeline start(TaskOrchestrationContext ctx) {
+        OrderTimeline timeline = new OrderTimeline();
+        timeline.startedAt = ctx.getCurrentInstant().toEpochMilli();
+        ctx.setCustomStatus(timeline);
+        return timeline;
+    }
+
+    /**
+     * Records that the named step is being scheduled now.
+     */
+    Step schedule(TaskOrchestrationContext ctx, String name) {
+        Step step = new Step();
+        step.name = name;
+        step.scheduledAt = ctx.getCurrentInstant().toEpochMilli();
+        steps.add(step);
+        ctx.setCustomStatus(this);
+        return step;
+    }
+
+    /**
+     * Records that the activity of a gateway step started on a worker at {@code startedAt} and has handed the
+     * request to its gateway.
+     */
+    void handedOff(TaskOrchestrationContext ctx, Step step, Long startedAt) {
+        step.startedAt = startedAt;
+        step.handedOffAt = ctx.getCurrentInstant().toEpochMilli();
+        ctx.setCustomStatus(this);
+    }
+
+    /**
+     * Records that the step's result arrived now.
+     */
+    void complete(TaskOrchestrationContext ctx, Step step) {
+        step.completedAt = ctx.getCurrentInstant().toEpochMilli();
+        ctx.setCustomStatus(this);
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * One step of the order pipeline. Times that were not reached, or that don't apply to the step, are
+     * {@code null}.
+     */
+    static final class Step {
+        private String name;
+        private Long scheduledAt;
+        private Long startedAt;
+        private Long handedOffAt;
+        private Long completedAt;
+
+        public Step() {
+            // For deserialization
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getScheduledAt() {
+            return scheduledAt;
+        }
+
+        public void setScheduledAt(Long scheduledAt) {
+            this.scheduledAt = scheduledAt;
+        }
+
+        public Long getStartedAt() {
+            return startedAt;
+        }
+
+        public void setStartedAt(Long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        public Long getHandedOffAt() {
+            return handedOffAt;
+        }
+
+        public void setHandedOffAt(Long handedOffAt) {
+            this.handedOffAt = handedOffAt;
+        }
+
+        public Long getCompletedAt() {
+            return completedAt;
+        }
+
+        public void setCompletedAt(Long completedAt) {
+            this.completedAt = completedAt;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.durabletask.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Latency breakdowns built from the {@link OrderTimeline} each order records in its custom status.
+ * <ul>
+ *   <li>{@link #timeline} - one order: when it was created and first picked up, and for each step when it was
+ *       scheduled and completed, with its total time ({@code completedAt - scheduledAt}).</li>
+ *   <li>{@link #summary} - percentiles of the same durations per step over the completed orders of every lane
+ *       created in a recent window, at most {@code orders.timeline.max-orders} of them.</li>
+ * </ul>
+ * Only the gateway steps ({@code ProcessPayment}, {@code ShipOrder}) know when their activity started on a worker,
+ * so only they also report {@code startedAt}, a queue wait ({@code startedAt - scheduledAt}), an execution time
+ * ({@code completedAt - startedAt}) and the gateway round trip alone as {@code gatewayMs}; the other steps leave
+ * those fields out. Steps that ran inline in the orchestrator aren't recorded. The orchestration's own queue wait,
+ * from creation until its first orchestrator episode ran, is reported as the {@code queueWaitMs} of the
+ * {@code Orchestration} step.
+ */
+@Component
+class OrderTimelines {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String ORCHESTRATION_STEP = "Orchestration";
+
+    private final OrderLanes lanes;
+    private final SingleFlightReads reads;
+    private final int maxOrders;
+
+    OrderTimelines(
+            OrderLanes lanes,
+            SingleFlightReads reads,
+            @Value("${orders.timeline.max-orders:1000}") int maxOrders) {
+        this.lanes = lanes;
+        this.reads = reads;
+        this.maxOrders = maxOrders;
+    }
+
+    /**
+     * Returns the timeline of one order as JSON, or {@code null} if the order doesn't exist.
+     */
+    String timeline(String instanceId) {
+        // Custom status is only returned along with the payloads
+        OrchestrationMetadata metadata = reads.getInstanceMetadata(instanceId, true);
+        if (metadata == null || !metadata.isInstanceFound()) {
+            return null;
+        }
+        OrderTimeline timeline = readTimeline(metadata);
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeStringField("instanceId", instanceId);
+            json.writeStringField("runtimeStatus", metadata.getRuntimeStatus().toString());
+            json.writeStringField("createdAt", String.valueOf(metadata.getCreatedAt()));
+            json.writeArrayFieldStart("steps");
+            if (timeline != null) {
+                long createdAt = metadata.getCreatedAt().toEpochMilli();
+                writeStep(json, ORCHESTRATION_STEP, createdAt, timeline.getStartedAt(), null, null);
+                for (OrderTimeline.Step step : timeline.getSteps()) {
+                    writeStep(json, step.getName(), step.getScheduledAt(), step.getStartedAt(),
+                        step.getHandedOffAt(), step.getCompletedAt());
+                }
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Returns per-step latency percentiles over the completed orders created within {@code window} as JSON.
+     */
+    String summary(Duration window) {
+        Map<String, Durations> byStep = new LinkedHashMap<>();
+        int orders = 0;
+
+        OrchestrationStatusQuery query = new OrchestrationStatusQuery()
+            .setRuntimeStatusList(Collections.singletonList(OrchestrationRuntimeStatus.COMPLETED))
+            .setCreatedTimeFrom(Instant.now().minus(window))
+            .setMaxInstanceCount(Math.min(maxOrders, 100))
+            .setFetchInputsAndOutputs(true);
+        for (DurableTaskClient client : lanes.clients()) {
+            String continuationToken = null;
+            do {
+                query.setContinuationToken(continuationToken);
+                OrchestrationStatusQueryResult page = client.queryInstances(query);
+                for (OrchestrationMetadata metadata : page.getOrchestrationState()) {
+                    if (orders == maxOrders) {
+                        break;
+                    }
+                    OrderTimeline timeline = readTimeline(metadata);
+                    if (timeline == null) {
+                        continue;
+                    }
+                    orders++;
+                    byStep.computeIfAbsent(ORCHESTRATION_STEP, name -> new Durations())
+                        .add(metadata.getCreatedAt().toEpochMilli(), timeline.getStartedAt(), null, null);
+                    for (OrderTimeline.Step step : timeline.getSteps()) {
+                        byStep.computeIfAbsent(step.getName(), name -> new Durations()).add(
+                            step.getScheduledAt(), step.getStartedAt(), step.getHandedOffAt(), step.getCompletedAt());
+                    }
+                }
+                continuationToken = page.getContinuationToken();
+            } while (continuationToken != null && orders < maxOrders);
+        }
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeStringField("window", window.toString());
+            json.writeNumberField("orders", orders);
+            json.writeArrayFieldStart("steps");
+            for (Map.Entry<String, Durations> entry : byStep.entrySet()) {
+                Durations durations = entry.getValue();
+                json.writeStartObject();
+                json.writeStringField("name", entry.getKey());
+                json.writeNumberField("count", durations.count);
+                writePercentiles(json, "queueWaitMs", durations.queueWaitMs);
+                writePercentiles(json, "executionMs", durations.executionMs);
+                writePercentiles(json, "gatewayMs", durations.gatewayMs);
+                writePercentiles(json, "totalMs", durations.totalMs);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static OrderTimeline readTimeline(OrchestrationMetadata metadata) {
+        String customStatus = metadata.getSerializedCustomStatus();
+        if (customStatus == null || customStatus.isEmpty()) {
+            // Started before timelines were recorded
+            return null;
+        }
+        return metadata.readCustomStatusAs(OrderTimeline.class);
+    }
+
+    private static void writeStep(
+            JsonGenerator json, String name, Long scheduledAt, Long startedAt, Long handedOffAt, Long completedAt)
+            throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", name);
+        writeInstant(json, "scheduledAt", scheduledAt);
+        writeInstant(json, "startedAt", startedAt);
+        writeInstant(json, "completedAt", completedAt);
+        writeDuration(json, "queueWaitMs", scheduledAt, startedAt);
+        writeDuration(json, "executionMs", startedAt, completedAt);
+        writeDuration(json, "gatewayMs", handedOffAt, completedAt);
+        writeDuration(json, "totalMs", scheduledAt, completedAt);
+        json.writeEndObject();
+    }
+
+    private static void writeInstant(JsonGenerator json, String field, Long epochMillis) throws IOException {
+        if (epochMillis != null) {
+            json.writeStringField(field, Instant.ofEpochMilli(epochMillis).toString());
+        }
+    }
+
+    private static void writeDuration(JsonGenerator json, String field, Long from, Long to) throws IOException {
+        if (from != null && to != null) {
+            json.writeNumberField(field, to - from);
+        }
+    }
+
+    private static void writePercentiles(JsonGenerator json, String field, List<Long> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        Collections.sort(values);
+        json.writeObjectFieldStart(field);
+        json.writeNumberField("p50", percentile(values, 0.50));
+        json.writeNumberField("p90", percentile(values, 0.90));
+        json.writeNumberField("p99", percentile(values, 0.99));
+        json.writeNumberField("max", values.get(values.size() - 1));
+        json.writeEndObject();
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        // Nearest-rank percentile
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Durations of one step across orders.
+     */
+    private static final class Durations {
+        final List<Long> queueWaitMs = new ArrayList<>();
+        final List<Long> executionMs = new ArrayList<>();
+        final List<Long> gatewayMs = new ArrayList<>();
+        final List<Long> totalMs = new ArrayList<>();
+        int count;
+
+        void add(Long scheduledAt, Long startedAt, Long handedOffAt, Long completedAt) {
+            count++;
+            addDuration(queueWaitMs, scheduledAt, startedAt);
+            addDuration(executionMs, startedAt, completedAt);
+            addDuration(gatewayMs, handedOffAt, completedAt);
+            addDuration(totalMs, scheduledAt, completedAt);
+        }
+
+        private static void addDuration(List<Long> durations, Long from, Long to) {
+            if (from != null && to != null) {
+                durations.add(to - from);
+            }
+        }
+    }
+}
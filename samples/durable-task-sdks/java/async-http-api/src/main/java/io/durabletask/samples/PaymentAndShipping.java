@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskCanceledException;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Payment and shipping steps of {@code ProcessOrderOrchestration}. Each step hands its request to a gateway in an
+ * activity ({@code ProcessPayment}, {@code ShipOrder}) and waits for the response as an external event
+ * ({@code PaymentResult}, {@code ShipmentResult}) for up to {@code orders.gateway.timeout}.
+ * <p>
+ * By default the steps run one after the other, so the shipping label is only requested once the payment has
+ * gone through. With {@code orders.shipping.speculative} the label is reserved in parallel with the payment, so
+ * the two steps take about as long as the slower of them instead of their sum. If the payment then fails or times
+ * out, the {@value #RELEASE_ACTIVITY} activity releases the label, whether or not its response has arrived yet,
+ * before the order fails; the order fails with the same messages in both modes. Releases are counted as
+ * {@code orders.shipping.labels.released}.
+ * <p>
+ * A response can be lost after the gateway has acted on the request, for example when the process crashes between
+ * the gateway's answer and the raised event, or when the activity is redelivered. So a step doesn't wait out the
+ * whole timeout for its event: after each of {@value #REQUERIES} + 1 equal windows it runs its activity again with
+ * the same request. The gateways deduplicate requests by order instance ID, so this re-raises the response to the
+ * first request instead of charging or shipping twice, and the order only fails once the last window has passed.
+ * <p>
+ * The two modes record different orchestration histories, so only change the setting while no orders are in
+ * flight.
+ */
+final class PaymentAndShipping {
+    static final String RELEASE_ACTIVITY = "ReleaseShipment";
+    static final int REQUERIES = 3;
+
+    private PaymentAndShipping() {
+    }
+
+    /**
+     * Charges the order, then ships it.
+     */
+    static OrderResult sequential(TaskOrchestrationContext ctx, OrderTimeline timeline,
+                                  PaymentRequest paymentRequest, ShipmentRequest shipmentRequest,
+                                  Duration gatewayTimeout) {
+        OrderTimeline.Step payment = timeline.schedule(ctx, "ProcessPayment");
+        Long paymentStartedAt = ctx.callActivity("ProcessPayment", paymentRequest, Long.class).await();
+        timeline.handedOff(ctx, payment, paymentStartedAt);
+        Duration window = requeryWindow(gatewayTimeout);
+        String paymentResult;
+        try {
+            paymentResult = await(ctx, ctx.waitForExternalEvent("PaymentResult", window, String.class),
+                "ProcessPayment", paymentRequest, "PaymentResult", window);
+            timeline.complete(ctx, payment);
+        } catch (TaskCanceledException e) {
+            return OrderResult.failed("Payment gateway timed out");
+        }
+        if (!paid(paymentResult)) {
+            return OrderResult.failed("Payment processing failed");
+        }
+
+        OrderTimeline.Step shipping = timeline.schedule(ctx, "ShipOrder");
+        Long shippingStartedAt = ctx.callActivity("ShipOrder", shipmentRequest, Long.class).await();
+        timeline.handedOff(ctx, shipping, shippingStartedAt);
+        return ship(ctx, timeline, shipping, shipmentRequest, paymentResult,
+            ctx.waitForExternalEvent("ShipmentResult", window, String.class), window);
+    }
+
+    /**
+     * Charges the order and reserves its shipping label at the same time, releasing the label if the charge
+     * doesn't go through.
+     */
+    static OrderResult speculative(TaskOrchestrationContext ctx, OrderTimeline timeline,
+                                   PaymentRequest paymentRequest, ShipmentRequest shipmentRequest,
+                                   Duration gatewayTimeout) {
+        OrderTimeline.Step payment = timeline.schedule(ctx, "ProcessPayment");
+        OrderTimeline.Step shipping = timeline.schedule(ctx, "ShipOrder");
+        List<Long> startedAt = ctx.allOf(Arrays.asList(
+            ctx.callActivity("ProcessPayment", paymentRequest, Long.class),
+            ctx.callActivity("ShipOrder", shipmentRequest, Long.class))).await();
+        timeline.handedOff(ctx, payment, startedAt.get(0));
+        timeline.handedOff(ctx, shipping, startedAt.get(1));
+
+        // Listen for both responses before waiting on either, so neither event is missed
+        Duration window = requeryWindow(gatewayTimeout);
+        Task<String> paymentEvent = ctx.waitForExternalEvent("PaymentResult", window, String.class);
+        Task<String> shipmentEvent = ctx.waitForExternalEvent("ShipmentResult", window, String.class);
+
+        String paymentResult;
+        try {
+            paymentResult = await(ctx, paymentEvent, "ProcessPayment", paymentRequest, "PaymentResult", window);
+            timeline.complete(ctx, payment);
+        } catch (TaskCanceledException e) {
+            release(ctx, timeline, shipmentRequest);
+            return OrderResult.failed("Payment gateway timed out");
+        }
+        if (!paid(paymentResult)) {
+            release(ctx, timeline, shipmentRequest);
+            return OrderResult.failed("Payment processing failed");
+        }
+        return ship(ctx, timeline, shipping, shipmentRequest, paymentResult, shipmentEvent, window);
+    }
+
+    private static OrderResult ship(TaskOrchestrationContext ctx, OrderTimeline timeline, OrderTimeline.Step shipping,
+                                    ShipmentRequest shipmentRequest, String paymentResult,
+                                    Task<String> shipmentEvent, Duration window) {
+        String shipmentResult;
+        try {
+            shipmentResult = await(ctx, shipmentEvent, "ShipOrder", shipmentRequest, "ShipmentResult", window);
+            timeline.complete(ctx, shipping);
+        } catch (TaskCanceledException e) {
+            return OrderResult.failed("Shipping gateway timed out");
+        }
+        if (shipmentResult.contains("\"success\":false")) {
+            return OrderResult.failed("Shipping failed");
+        }
+
+        // Embed the gateway responses as-is
+        return OrderResult.success(paymentResult, shipmentResult);
+    }
+
+    /**
+     * Waits for a gateway's response, running the hand-off activity again after each window without one.
+     *
+     * @throws TaskCanceledException if the last window passes without a response
+     */
+    private static String await(TaskOrchestrationContext ctx, Task<String> event, String activity,
+                                GatewayRequest request, String eventName, Duration window) {
+        for (int requery = 0; ; requery++) {
+            try {
+                return event.await();
+            } catch (TaskCanceledException e) {
+                if (requery == REQUERIES) {
+                    throw e;
+                }
+            }
+            ctx.callActivity(activity, request, Long.class).await();
+            event = ctx.waitForExternalEvent(eventName, window, String.class);
+        }
+    }
+
+    private static Duration requeryWindow(Duration gatewayTimeout) {
+        return gatewayTimeout.dividedBy(REQUERIES + 1);
+    }
+
+    private static void release(TaskOrchestrationContext ctx, OrderTimeline timeline, ShipmentRequest request) {
+        OrderTimeline.Step release = timeline.schedule(ctx, RELEASE_ACTIVITY);
+        ctx.callActivity(RELEASE_ACTIVITY, request).await();
+        timeline.complete(ctx, release);
+    }
+
+    private static boolean paid(String paymentResult) {
+        return paymentResult.contains("\"success\":true");
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stand-in for the payment provider; latency is set by {@code orders.gateway.payment.latency}, and calls are held
+ * to the provider's quota of {@code orders.gateway.payment.rate-limit} per second when it is set.
+ * <p>
+ * Charges are keyed by order instance ID, like an idempotency key sent with the charge, so a redelivered
+ * {@code ProcessPayment} activity or a re-query after a lost response gets the existing charge back instead of
+ * charging the customer again. Like a real provider, the stand-in keeps its charges on its side of the call; here
+ * that is in memory.
+ */
+@Component
+class PaymentGateway extends SimulatedGateway {
+
+    PaymentGateway(
+            @Value("${orders.gateway.payment.latency:fixed:1000}") String latency,
+            @Value("${orders.gateway.payment.rate-limit:0}") double permitsPerSecond,
+            @Value("${orders.gateway.payment.burst:1}") int burst,
+            MeterRegistry registry) {
+        super("payment", LatencyDistribution.parse(latency), permitsPerSecond, burst, registry);
+    }
+
+    @Override
+    protected String idempotencyKey(String payload) {
+        return instanceId(payload);
+    }
+
+    @Override
+    protected String respond(String payload) {
+        return "{\"success\":true, \"transactionId\":\"TXN" + System.currentTimeMillis() + "\"}";
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Input of the {@code ProcessPayment} activity: who is charged and how much.
+ */
+final class PaymentRequest extends GatewayRequest {
+
+    private String orderId;
+    private String customerId;
+    private BigDecimal amount;
+
+    public PaymentRequest() {
+        // For deserialization
+    }
+
+    /**
+     * Projects the payment fields from an order document.
+     *
+     * @throws IOException if the document is not a well-formed JSON object
+     */
+    static PaymentRequest from(String instanceId, String orderJson) throws IOException {
+        Order order = Order.parse(orderJson);
+        PaymentRequest request = new PaymentRequest(instanceId);
+        request.orderId = order.getOrderId();
+        request.customerId = order.getCustomerId();
+        request.amount = order.getAmount();
+        return request;
+    }
+
+    private PaymentRequest(String instanceId) {
+        super(instanceId);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation for the order pipeline's orchestrations and activities. Every meter is tagged with
+ * the {@code lane} ({@link OrderLanes}) of the worker it runs on.
+ * <ul>
+ *   <li>{@code orders.activity} - execution time of each activity, tagged with {@code name} and
+ *       {@code outcome}. Activities are never replayed, so every execution is counted.</li>
+ *   <li>{@code orders.orchestration} - start-to-complete latency of each orchestration, tagged with
+ *       {@code name}. An orchestrator function runs again for every replay, so the latency is measured with
+ *       the orchestration's deterministic clock and recorded only from the episode that completes the instance,
+ *       never from a replay.</li>
+ * </ul>
+ */
+final class PipelineMetrics {
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Wraps an activity registration so that each execution is timed.
+     */
+    static TaskActivityFactory timed(TaskActivityFactory factory, MeterRegistry registry, String lane) {
+        Timer succeeded = activityTimer(registry, factory.getName(), lane, "success");
+        Timer failed = activityTimer(registry, factory.getName(), lane, "failure");
+        return new TaskActivityFactory() {
+            @Override
+            public String getName() { return factory.getName(); }
+
+            @Override
+            public TaskActivity create() {
+                TaskActivity activity = factory.create();
+                return ctx -> {
+                    long startNanos = System.nanoTime();
+                    try {
+                        Object result = activity.run(ctx);
+                        succeeded.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        return result;
+                    } catch (RuntimeException e) {
+                        failed.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        throw e;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Wraps an orchestration registration so that its start-to-complete latency is recorded once per instance.
+     */
+    static TaskOrchestrationFactory timed(TaskOrchestrationFactory factory, MeterRegistry registry, String lane) {
+        Timer latency = Timer.builder("orders.orchestration")
+            .description("Orchestration start-to-complete latency")
+            .tag("name", factory.getName())
+            .tag("lane", lane)
+            .publishPercentileHistogram()
+            .register(registry);
+        return new TaskOrchestrationFactory() {
+            @Override
+            public String getName() { return factory.getName(); }
+
+            @Override
+            public TaskOrchestration create() {
+                TaskOrchestration orchestration = factory.create();
+                return ctx -> {
+                    // The first replayed timestamp is the time the instance started, on every episode
+                    Instant startedAt = ctx.getCurrentInstant();
+
+                    // The orchestrator returns normally only once it has completed; while it waits on a task,
+                    // await() unwinds it with an exception and this code is not reached
+                    orchestration.run(ctx);
+                    if (!ctx.getIsReplaying()) {
+                        latency.record(Duration.between(startedAt, ctx.getCurrentInstant()));
+                    }
+                };
+            }
+        };
+    }
+
+    private static Timer activityTimer(MeterRegistry registry, String name, String lane, String outcome) {
+        return Timer.builder("orders.activity")
+            .description("Activity execution time")
+            .tag("name", name)
+            .tag("lane", lane)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.TaskActivity;
+import com.microsoft.durabletask.TaskActivityFactory;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A deterministic, side-effect-free orchestration step that can run either as an activity or inline.
+ * <p>
+ * Scheduling an activity costs a history event, a dispatch round trip and a replay of the orchestrator when the
+ * result comes back. For cheap pure functions such as order validation that overhead dwarfs the work itself, so
+ * an inline step simply runs the function inside the orchestrator. That is replay safe only because the function
+ * depends on nothing but its input: every replay recomputes the same result, and no history event is written.
+ * A function that needs I/O for some inputs runs inline only for the others, which the {@code inline} predicate
+ * picks; since the choice depends only on the input, every replay makes the same one.
+ * <p>
+ * Switching a step between inline and activity changes the shape of the orchestration history, so only do it
+ * while no orders are in flight.
+ *
+ * @param <I> the step input type
+ * @param <O> the step result type
+ */
+final class PureStep<I, O> {
+
+    private final String name;
+    private final Class<I> inputType;
+    private final Class<O> resultType;
+    private final Function<I, O> function;
+    private final Predicate<I> inline;
+
+    /**
+     * @param inline picks the inputs to run inline, for which {@code function} must be pure; the others run as an
+     *               activity
+     */
+    PureStep(String name, Class<I> inputType, Class<O> resultType, Function<I, O> function, Predicate<I> inline) {
+        this.name = name;
+        this.inputType = inputType;
+        this.resultType = resultType;
+        this.function = function;
+        this.inline = inline;
+    }
+
+    /**
+     * Runs the step from an orchestrator and returns its result.
+     */
+    O call(TaskOrchestrationContext ctx, I input) {
+        if (inline.test(input)) {
+            return function.apply(input);
+        }
+        return ctx.callActivity(name, input, resultType).await();
+    }
+
+    /**
+     * Runs the step from an orchestrator and returns its result, recording the step in the order's timeline when it
+     * runs as an activity. An inline step takes no time on the orchestration's clock, so it isn't recorded.
+     */
+    O call(TaskOrchestrationContext ctx, OrderTimeline timeline, I input) {
+        if (inline.test(input)) {
+            return function.apply(input);
+        }
+        OrderTimeline.Step step = timeline.schedule(ctx, name);
+        O result = ctx.callActivity(name, input, resultType).await();
+        timeline.complete(ctx, step);
+        return result;
+    }
+
+    /**
+     * Returns the activity registration for this step. It is registered in both modes, for the inputs that don't
+     * run inline and so that orders scheduled before the step was made inline can still finish.
+     */
+    TaskActivityFactory asActivity() {
+        return new TaskActivityFactory() {
+            @Override
+            public String getName() { return name; }
+
+            @Override
+            public TaskActivity create() {
+                return ctx -> function.apply(ctx.getInput(inputType));
+            }
+        };
+    }
+}
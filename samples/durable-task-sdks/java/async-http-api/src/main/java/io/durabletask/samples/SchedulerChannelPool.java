@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.azure.core.credential.TokenCredential;
+import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerClientOptions;
+import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerConnectionString;
+import io.grpc.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of gRPC channels to the Durable Task Scheduler, shared by the worker and the client.
+ * <p>
+ * Building the worker and the client from the connection string gives each of them its own channel, and so its
+ * own HTTP/2 connection and token cache. HTTP/2 multiplexes any number of concurrent calls over one connection,
+ * so a single channel (or a few, for very high call rates) is enough for both. Calls are spread over the pooled
+ * channels round-robin.
+ * <p>
+ * The channels are created by the SDK's {@link DurableTaskSchedulerClientOptions}, exactly as the Durable Task
+ * Scheduler extensions create them, so the endpoint, {@code taskhub} header and credentials stay whatever the SDK
+ * does; this class only shares them. They are used with the SDK's channel settings, which send no keepalive pings.
+ * {@link #forTaskHub} returns the pool for another task hub, created on first use and closed with this one.
+ */
+final class SchedulerChannelPool extends Channel implements AutoCloseable {
+
+    private final String endpoint;
+    private final TokenCredential credential;
+    private final List<Channel> channels;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ConcurrentMap<String, SchedulerChannelPool> taskHubs = new ConcurrentHashMap<>();
+
+    private SchedulerChannelPool(String endpoint, String taskHub, TokenCredential credential, int size) {
+        this.endpoint = endpoint;
+        this.credential = credential;
+        this.channels = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            channels.add(createChannel(endpoint, taskHub, credential));
+        }
+    }
+
+    /**
+     * Creates a pool of {@code size} channels for the given connection string.
+     *
+     * @param connectionString scheduler connection string ({@code Endpoint=...;TaskHub=...;Authentication=...})
+     * @param size             number of channels; {@code 0} means one per available processor
+     */
+    static SchedulerChannelPool create(String connectionString, int size) {
+        DurableTaskSchedulerConnectionString connection = new DurableTaskSchedulerConnectionString(connectionString);
+        int poolSize = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        return new SchedulerChannelPool(
+            connection.getEndpoint(), connection.getTaskHubName(), connection.getCredential(), poolSize);
+    }
+
+    /**
+     * Returns a pool of as many channels to the same scheduler whose calls go to the given task hub.
+     */
+    Channel forTaskHub(String taskHub) {
+        return taskHubs.computeIfAbsent(
+            taskHub, hub -> new SchedulerChannelPool(endpoint, hub, credential, channels.size()));
+    }
+
+    @Override
+    public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(
+            MethodDescriptor<RequestT, ResponseT> methodDescriptor, CallOptions callOptions) {
+        int index = Math.floorMod(next.getAndIncrement(), channels.size());
+        return channels.get(index).newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (SchedulerChannelPool pool : taskHubs.values()) {
+            pool.close();
+        }
+        shutdown(channels);
+    }
+
+    /**
+     * Shuts the given channels down, waiting a few seconds for calls still in progress before cancelling them.
+     */
+    static void shutdown(Iterable<Channel> channels) throws InterruptedException {
+        for (Channel channel : channels) {
+            if (channel instanceof ManagedChannel) {
+                ((ManagedChannel) channel).shutdown();
+            }
+        }
+        for (Channel channel : channels) {
+            if (channel instanceof ManagedChannel) {
+                ManagedChannel managed = (ManagedChannel) channel;
+                if (!managed.awaitTermination(5, TimeUnit.SECONDS)) {
+                    managed.shutdownNow();
+                }
+            }
+        }
+    }
+
+    private static Channel createChannel(String endpoint, String taskHub, TokenCredential credential) {
+        return new DurableTaskSchedulerClientOptions()
+            .setEndpointAddress(endpoint)
+            .setTaskHubName(taskHub)
+            .setCredential(credential)
+            .createGrpcChannel();
+    }
+}
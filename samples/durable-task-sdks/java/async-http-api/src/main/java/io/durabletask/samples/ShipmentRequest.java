@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input of the {@code ShipOrder} activity: where the order goes and which items it contains, without prices or
+ * any other item fields.
+ */
+final class ShipmentRequest extends GatewayRequest {
+    // Reads the address into a tree, so it is passed on as-is whatever fields it has
+    private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+
+    private String orderId;
+    private JsonNode shippingAddress;
+    private List<InventoryReservation.Item> items = new ArrayList<>();
+
+    public ShipmentRequest() {
+        // For deserialization
+    }
+
+    /**
+     * Projects the shipping fields from an order document in one streaming pass.
+     *
+     * @throws IOException if the document or one of its items is malformed
+     */
+    static ShipmentRequest from(String instanceId, String orderJson) throws IOException {
+        ShipmentRequest request = new ShipmentRequest(instanceId);
+        try (JsonParser parser = JSON_FACTORY.createParser(new StringReader(orderJson))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Order must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("orderId".equals(field) && value.isScalarValue()) {
+                    request.orderId = parser.getValueAsString();
+                } else if ("shippingAddress".equals(field) && value == JsonToken.START_OBJECT) {
+                    request.shippingAddress = parser.readValueAsTree();
+                } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        request.items.add(InventoryReservation.readItem(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return request;
+    }
+
+    private ShipmentRequest(String instanceId) {
+        super(instanceId);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public JsonNode getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public void setShippingAddress(JsonNode shippingAddress) {
+        this.shippingAddress = shippingAddress;
+    }
+
+    public List<InventoryReservation.Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<InventoryReservation.Item> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Stand-in for the shipping provider; latency is set by {@code orders.gateway.shipping.latency}, and calls are
+ * held to {@code orders.gateway.shipping.rate-limit} per second when it is set.
+ * <p>
+ * Each shipment reserves a label for its order instance until it is released. Releasing is immediate, and a
+ * release that arrives before the label was confirmed voids the label when it is. Like a carrier voiding unused
+ * labels, reservations that are neither used nor released are dropped after {@link #LABEL_TTL}. Releases are counted
+ * as {@code orders.shipping.labels.released}. Shipments are deduplicated by order instance ID, so asking again
+ * for an order's shipment returns the label already reserved for it.
+ */
+@Component
+class ShippingGateway extends SimulatedGateway {
+    static final Duration LABEL_TTL = Duration.ofHours(1);
+
+    private static final String RELEASED = "";
+
+    // Order instance ID to tracking number, or RELEASED
+    private final Cache<String, String> labels = Caffeine.newBuilder().expireAfterWrite(LABEL_TTL).build();
+    private final Counter released;
+
+    ShippingGateway(
+            @Value("${orders.gateway.shipping.latency:fixed:1000}") String latency,
+            @Value("${orders.gateway.shipping.rate-limit:0}") double permitsPerSecond,
+            @Value("${orders.gateway.shipping.burst:1}") int burst,
+            MeterRegistry registry) {
+        super("shipping", LatencyDistribution.parse(latency), permitsPerSecond, burst, registry);
+        this.released = Counter.builder("orders.shipping.labels.released")
+            .description("Shipping labels released because the order's payment failed")
+            .register(registry);
+    }
+
+    /**
+     * Releases the label reserved for a shipment request, or voids it if it has not been confirmed yet.
+     */
+    void release(String payload) {
+        labels.put(instanceId(payload), RELEASED);
+        released.increment();
+    }
+
+    /**
+     * Returns whether a label is reserved, and not released, for an order instance.
+     */
+    boolean hasLabel(String instanceId) {
+        String label = labels.getIfPresent(instanceId);
+        return label != null && !RELEASED.equals(label);
+    }
+
+    @Override
+    protected String idempotencyKey(String payload) {
+        return instanceId(payload);
+    }
+
+    @Override
+    protected String respond(String payload) {
+        String trackingNumber = "TRACK" + System.currentTimeMillis();
+        labels.asMap().putIfAbsent(instanceId(payload), trackingNumber);
+        return "{\"trackingNumber\":\"" + trackingNumber + "\"}";
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a remote gateway with an asynchronous client.
+ * <p>
+ * A call returns a {@link CompletableFuture} immediately and completes it on a timer after a latency drawn from
+ * the configured {@link LatencyDistribution}, the way a non-blocking HTTP client would. No thread is held while
+ * a call is outstanding, so thousands of calls can be in flight at once.
+ * <p>
+ * A gateway configured with a rate limit sends calls through a {@link TokenBucket}, so bursts are held back to the
+ * provider's quota instead of being rejected by it; a held call waits on the gateway's timer, not on a thread.
+ * <p>
+ * A gateway whose requests carry an {@linkplain #idempotencyKey idempotency key} answers a repeated request with
+ * the response to the first one, pending or not, for {@link #RESPONSE_TTL}, the way a payment provider
+ * deduplicates charges by idempotency key. A request that failed is sent again.
+ */
+abstract class SimulatedGateway {
+    static final Duration RESPONSE_TTL = Duration.ofHours(1);
+
+    private static final ObjectMapper PAYLOAD_MAPPER = new ObjectMapper();
+
+    private final Cache<String, CompletableFuture<String>> responses =
+        Caffeine.newBuilder().expireAfterWrite(RESPONSE_TTL).build();
+    private final LatencyDistribution latency;
+    private final ScheduledExecutorService timer;
+    private final TokenBucket rateLimit;
+
+    SimulatedGateway(String name, LatencyDistribution latency) {
+        this(name, latency, 0, 1, null);
+    }
+
+    /**
+     * @param permitsPerSecond calls per second allowed by the provider, or {@code 0} for no limit
+     * @param burst            calls that may be sent at once after an idle period
+     */
+    SimulatedGateway(String name, LatencyDistribution latency, double permitsPerSecond, int burst, MeterRegistry registry) {
+        this.latency = latency;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimit = permitsPerSecond > 0 ? new TokenBucket(name, permitsPerSecond, burst, timer, registry) : null;
+    }
+
+    /**
+     * Sends a request to the gateway.
+     *
+     * @param payload the request document
+     * @return a future that completes with the gateway's JSON response
+     */
+    CompletableFuture<String> call(String payload) {
+        String key = idempotencyKey(payload);
+        if (key == null) {
+            return dispatch(payload);
+        }
+        CompletableFuture<String> response = responses.get(key, k -> dispatch(payload));
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                responses.asMap().remove(key, response);
+            }
+        });
+        return response;
+    }
+
+    private CompletableFuture<String> dispatch(String payload) {
+        if (rateLimit != null) {
+            return rateLimit.acquire().thenCompose(permit -> send(payload));
+        }
+        return send(payload);
+    }
+
+    private CompletableFuture<String> send(String payload) {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        timer.schedule(() -> {
+            try {
+                response.complete(respond(payload));
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+        }, latency.nextMillis(), TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    /**
+     * Returns the key that identifies repeats of the same request, or {@code null} if every request is new.
+     */
+    protected String idempotencyKey(String payload) {
+        return null;
+    }
+
+    /**
+     * Produces the gateway's response once the simulated latency has elapsed.
+     */
+    protected abstract String respond(String payload);
+
+    /**
+     * Returns the order instance ID of a {@link GatewayRequest} payload.
+     */
+    static String instanceId(String payload) {
+        try {
+            return PAYLOAD_MAPPER.readTree(payload).path("instanceId").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+}
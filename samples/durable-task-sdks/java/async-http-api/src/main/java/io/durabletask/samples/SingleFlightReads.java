@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.OrchestrationMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces concurrent status reads of the same order into one backend call.
+ * <p>
+ * Popular orders are polled by many clients at once, and each poll would otherwise be its own
+ * {@code getInstanceMetadata} round trip to the scheduler. Here the first read of an instance makes the call and
+ * every read of the same instance that arrives while it is in flight, or within {@code orders.status.coalesce-window}
+ * after it returns, gets the same result. A read can therefore be up to the window older than the call it
+ * joined; a window of zero shares only in-flight calls. Failed calls are not shared after they return, so the
+ * next read retries.
+ * <p>
+ * Reads are counted as {@code orders.status.reads}, tagged {@code result=backend} for the ones that called the
+ * scheduler and {@code result=coalesced} for the ones that joined another read.
+ */
+@Component
+class SingleFlightReads {
+
+    private final OrderLanes lanes;
+    private final long windowMs;
+    private final Map<String, CompletableFuture<OrchestrationMetadata>> withoutPayloads = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<OrchestrationMetadata>> withPayloads = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expiry;
+    private final Counter backendReads;
+    private final Counter coalescedReads;
+
+    SingleFlightReads(
+            OrderLanes lanes,
+            MeterRegistry registry,
+            @Value("${orders.status.coalesce-window:PT0.1S}") Duration window) {
+        this.lanes = lanes;
+        this.windowMs = window.toMillis();
+        this.expiry = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "single-flight-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.backendReads = Counter.builder("orders.status.reads")
+            .description("Order status reads, by whether they called the scheduler or joined another read")
+            .tag("result", "backend")
+            .register(registry);
+        this.coalescedReads = Counter.builder("orders.status.reads")
+            .description("Order status reads, by whether they called the scheduler or joined another read")
+            .tag("result", "coalesced")
+            .register(registry);
+    }
+
+    /**
+     * Same as {@link com.microsoft.durabletask.DurableTaskClient#getInstanceMetadata}, on the client for the
+     * instance's lane, but shared with concurrent reads of the same instance.
+     */
+    OrchestrationMetadata getInstanceMetadata(String instanceId, boolean getInputsAndOutputs) {
+        Map<String, CompletableFuture<OrchestrationMetadata>> flights =
+            getInputsAndOutputs ? withPayloads : withoutPayloads;
+        CompletableFuture<OrchestrationMetadata> flight = new CompletableFuture<>();
+        CompletableFuture<OrchestrationMetadata> shared = flights.putIfAbsent(instanceId, flight);
+        if (shared != null) {
+            coalescedReads.increment();
+            return join(shared);
+        }
+
+        backendReads.increment();
+        try {
+            flight.complete(lanes.client(instanceId).getInstanceMetadata(instanceId, getInputsAndOutputs));
+        } catch (RuntimeException e) {
+            flights.remove(instanceId, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        if (windowMs > 0) {
+            expiry.schedule(() -> flights.remove(instanceId, flight), windowMs, TimeUnit.MILLISECONDS);
+        } else {
+            flights.remove(instanceId, flight);
+        }
+        return flight.join();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        expiry.shutdownNow();
+    }
+
+    private static OrchestrationMetadata join(CompletableFuture<OrchestrationMetadata> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // Rethrow what the backend call threw, as if this read had made it
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
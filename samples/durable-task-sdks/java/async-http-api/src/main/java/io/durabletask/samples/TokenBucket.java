@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket that holds calls to a downstream service within its rate quota.
+ * <p>
+ * The bucket refills at {@code permitsPerSecond} and holds at most {@code burst} permits. Rather than counting
+ * tokens, it keeps the time at which the next permit becomes free and each caller reserves a slot by advancing
+ * that time with a single compare-and-set; there are no locks, and a caller that finds a permit available
+ * returns straight away. A caller that has to wait gets a future that completes on {@code scheduler} when its
+ * slot comes up, so no thread sleeps in the meantime. Slots are reserved in arrival order.
+ * <p>
+ * Metrics, tagged with {@code downstream}:
+ * <ul>
+ *   <li>{@code orders.ratelimit.wait} - how long each caller waited for its permit; its count is the number of
+ *       permits granted</li>
+ *   <li>{@code orders.ratelimit.utilization} - fraction of the bucket in use, from 0 (full) to 1 (empty);
+ *       above 1 when callers are queued</li>
+ * </ul>
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong nextFreeNanos;
+    private final Timer waitTimer;
+
+    TokenBucket(
+            String downstream,
+            double permitsPerSecond,
+            int burst,
+            ScheduledExecutorService scheduler,
+            MeterRegistry registry) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("A token bucket needs a positive rate and a burst of at least 1");
+        }
+        this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = (burst - 1) * intervalNanos;
+        this.scheduler = scheduler;
+        this.nextFreeNanos = new AtomicLong(System.nanoTime() - burstNanos);
+        this.waitTimer = Timer.builder("orders.ratelimit.wait")
+            .description("Time spent waiting for a rate limit permit")
+            .tag("downstream", downstream)
+            .publishPercentileHistogram()
+            .register(registry);
+        Gauge.builder("orders.ratelimit.utilization", this, TokenBucket::utilization)
+            .description("Fraction of the rate limit bucket in use; above 1 when callers are queued")
+            .tag("downstream", downstream)
+            .register(registry);
+    }
+
+    /**
+     * Reserves a permit and returns a future that completes once it may be used.
+     */
+    CompletableFuture<Void> acquire() {
+        long now;
+        long slot;
+        while (true) {
+            long next = nextFreeNanos.get();
+            now = System.nanoTime();
+            // An idle bucket holds at most burst permits, so unused slots further back are forfeit
+            slot = Math.max(next, now - burstNanos);
+            if (nextFreeNanos.compareAndSet(next, slot + intervalNanos)) {
+                break;
+            }
+        }
+
+        long waitNanos = slot - now;
+        if (waitNanos <= 0) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return CompletableFuture.completedFuture(null);
+        }
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        scheduler.schedule(() -> permit.complete(null), waitNanos, TimeUnit.NANOSECONDS);
+        return permit;
+    }
+
+    private double utilization() {
+        // The bucket is full when the next free slot is a whole burst behind now, and empty once it is ahead of now
+        long ahead = nextFreeNanos.get() - (System.nanoTime() - burstNanos);
+        return Math.max(0, (double) ahead / (burstNanos + intervalNanos));
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode ({@code orders.web.virtual-threads=true}) that serves HTTP requests on virtual threads.
+ * <p>
+ * {@link com.microsoft.durabletask.DurableTaskClient} only offers blocking calls, so every request to
+ * {@code /api/orders} parks its thread for the duration of a gRPC round trip. With platform threads that caps
+ * concurrency at Tomcat's worker pool size; with one virtual thread per request a parked call only holds a few
+ * kilobytes of heap. Streaming responses (for example bulk intake) run on the same executor.
+ * <p>
+ * Virtual threads need Java 21 or later at runtime; the executor is looked up reflectively so the sample still
+ * compiles and runs in the default mode on older JDKs. They also need Tomcat 9.0.74 or later, which the build
+ * pins: older versions hold a monitor on the socket while serving a request, so each blocked request pins its
+ * virtual thread to one of the few carrier threads, and the server handles about one request per CPU at a time.
+ * To compare the two thread models offline, point the load generator at {@code StubbedClientWebApi}, which runs
+ * this application with a stubbed client.
+ */
+@Configuration
+@ConditionalOnProperty(name = "orders.web.virtual-threads", havingValue = "true")
+class VirtualThreadsConfig implements WebMvcConfigurer {
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("orders.web.virtual-threads=true requires Java 21 or later", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create the virtual thread executor", e);
+        }
+    }
+}
@@ -2,15 +2,38 @@
 // Licensed under the MIT License.
 package io.durabletask.samples;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.microsoft.durabletask.*;
 import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerClientExtensions;
-import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerWorkerExtensions;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
 
 /**
  * Sample Spring Boot application demonstrating Azure-managed Durable Task integration.
@@ -21,130 +44,344 @@ import org.springframework.context.annotation.Configuration;
  */
 @SpringBootApplication
 public class WebApi {
+    private static final Logger logger = LoggerFactory.getLogger(WebApi.class);
 
     public static void main(String[] args) {
-        ConfigurableApplicationContext context = SpringApplication.run(WebApi.class, args);
-
-        // Get the worker bean and start it
-        DurableTaskGrpcWorker worker = context.getBean(DurableTaskGrpcWorker.class);
-        worker.start();
+        // The worker is started, and drained on shutdown, by WorkerLifecycle
+        SpringApplication.run(WebApi.class, args);
     }
 
     @Configuration
     static class DurableTaskConfig {
+        /**
+         * One pool of gRPC channels shared by the worker and the client, instead of a channel, connection and token
+         * cache per builder; the channels themselves are created by the SDK. Opt-in (orders.grpc.shared-channel); by
+         * default the client comes from the Azure-managed extensions and each worker has a channel of its own
+         * ({@link WorkerChannels}).
+         */
+        @Bean(destroyMethod = "close")
+        @ConditionalOnProperty(name = "orders.grpc.shared-channel", havingValue = "true")
+        public SchedulerChannelPool schedulerChannelPool(@Value("${orders.grpc.channel-pool-size:1}") int poolSize) {
+            return SchedulerChannelPool.create(connectionString(), poolSize);
+        }
+
         @Bean
-        public DurableTaskGrpcWorker durableTaskWorker() {
+        @Primary
+        public DurableTaskGrpcWorker durableTaskWorker(
+                ObjectProvider<SchedulerChannelPool> channelPool,
+                WorkerChannels workerChannels,
+                InFlightWork inFlightWork,
+                OrderAdmission admission,
+                ClaimCheckStore claimCheck,
+                OrderResultCache resultCache,
+                OrderReadModel readModel,
+                InventoryService inventory,
+                PaymentGateway paymentGateway,
+                ShippingGateway shippingGateway,
+                GatewayCallbacks gatewayCallbacks,
+                MeterRegistry meterRegistry,
+                @Value("${orders.gateway.timeout:PT5M}") Duration gatewayTimeout,
+                @Value("${orders.shipping.speculative:false}") boolean speculativeShipping,
+                @Value("${orders.inline-steps:}") List<String> inlineSteps) {
 
-            // Create worker using Azure-managed extensions
-            // use system env variable DURABLE_TASK_CONNECTION_STRING or default to local development
-            String connectionString = System.getenv("DURABLE_TASK_CONNECTION_STRING");
-            if (connectionString == null) {
-                connectionString = "Endpoint=http://localhost:8080;TaskHub=default;Authentication=None";
-            }
-            DurableTaskGrpcWorkerBuilder workerBuilder = DurableTaskSchedulerWorkerExtensions.createWorkerBuilder(
-                connectionString
-            );
+            // Create worker on the shared channel, or on a channel of its own when it is disabled; either stays open
+            // until WorkerLifecycle has drained the worker
+            SchedulerChannelPool channel = channelPool.getIfAvailable();
+            DurableTaskGrpcWorkerBuilder workerBuilder = new DurableTaskGrpcWorkerBuilder()
+                .grpcChannel(channel != null ? channel : workerChannels.open(connectionString()));
+            registerOrderPipeline(workerBuilder::addOrchestration, workerBuilder::addActivity, "standard", inFlightWork,
+                admission, claimCheck, resultCache, readModel, inventory, paymentGateway, shippingGateway,
+                gatewayCallbacks, meterRegistry, gatewayTimeout, speculativeShipping, inlineSteps);
+            return workerBuilder.build();
+        }
+
+        /**
+         * A second worker, with its own threads, that serves only express orders from their own task hub
+         * (orders.lanes.express.task-hub), so they never queue behind standard orders. See {@link OrderLanes}.
+         */
+        @Bean
+        @ConditionalOnProperty("orders.lanes.express.task-hub")
+        public DurableTaskGrpcWorker expressDurableTaskWorker(
+                ObjectProvider<SchedulerChannelPool> channelPool,
+                WorkerChannels workerChannels,
+                @Value("${orders.lanes.express.task-hub}") String taskHub,
+                InFlightWork inFlightWork,
+                OrderAdmission admission,
+                ClaimCheckStore claimCheck,
+                OrderResultCache resultCache,
+                OrderReadModel readModel,
+                InventoryService inventory,
+                PaymentGateway paymentGateway,
+                ShippingGateway shippingGateway,
+                GatewayCallbacks gatewayCallbacks,
+                MeterRegistry meterRegistry,
+                @Value("${orders.gateway.timeout:PT5M}") Duration gatewayTimeout,
+                @Value("${orders.shipping.speculative:false}") boolean speculativeShipping,
+                @Value("${orders.inline-steps:}") List<String> inlineSteps) {
+            SchedulerChannelPool channel = channelPool.getIfAvailable();
+            DurableTaskGrpcWorkerBuilder workerBuilder = new DurableTaskGrpcWorkerBuilder().grpcChannel(
+                channel != null ? channel.forTaskHub(taskHub) : workerChannels.open(connectionString(taskHub)));
+            registerOrderPipeline(workerBuilder::addOrchestration, workerBuilder::addActivity, "express", inFlightWork,
+                admission, claimCheck, resultCache, readModel, inventory, paymentGateway, shippingGateway,
+                gatewayCallbacks, meterRegistry, gatewayTimeout, speculativeShipping, inlineSteps);
+            return workerBuilder.build();
+        }
 
-            // Add orchestrations using the factory pattern
-            workerBuilder.addOrchestration(new TaskOrchestrationFactory() {
+        /**
+         * Registers the order pipeline's orchestration and activities for one lane with a worker, or with whatever
+         * else runs them, such as {@code OrderOrchestrationBenchmark}.
+         */
+        static void registerOrderPipeline(
+                Consumer<TaskOrchestrationFactory> orchestrations,
+                Consumer<TaskActivityFactory> activities,
+                String lane,
+                InFlightWork inFlightWork,
+                OrderAdmission admission,
+                ClaimCheckStore claimCheck,
+                OrderResultCache resultCache,
+                OrderReadModel readModel,
+                InventoryService inventory,
+                PaymentGateway paymentGateway,
+                ShippingGateway shippingGateway,
+                GatewayCallbacks gatewayCallbacks,
+                MeterRegistry meterRegistry,
+                Duration gatewayTimeout,
+                boolean speculativeShipping,
+                List<String> inlineSteps) {
+            // Validation is a cheap pure function, so it can run inline in the orchestrator (orders.inline-steps).
+            // Large orders arrive as claim-check references, and reading them from the store is I/O, so those are
+            // still validated by the activity.
+            boolean inlineValidation = inlineSteps.contains("ValidateOrder");
+            PureStep<String, Boolean> validateOrder = new PureStep<>(
+                "ValidateOrder", String.class, Boolean.class, orderJson -> validateOrder(claimCheck.resolve(orderJson)),
+                orderJson -> inlineValidation && !ClaimCheckStore.isReference(orderJson));
+            // The projection is pure as well; only claim-checked orders need the activity to read the document
+            PureStep<String, OrderProjection> projectOrder = new PureStep<>(
+                OrderProjection.ACTIVITY_NAME, String.class, OrderProjection.class,
+                orderJson -> OrderProjection.project(claimCheck.resolve(orderJson), inventory.getBatchSize()),
+                orderJson -> !ClaimCheckStore.isReference(orderJson));
+
+            // Add orchestrations using the factory pattern; PipelineMetrics times each registration, InFlightWork
+            // counts running executions for the shutdown drain and OrderAdmission counts completed orders
+            orchestrations.accept(inFlightWork.tracked(PipelineMetrics.timed(admission.tracked(new TaskOrchestrationFactory() {
                 @Override
                 public String getName() { return "ProcessOrderOrchestration"; }
 
                 @Override
                 public TaskOrchestration create() {
                     return ctx -> {
-                        // Get the order input as JSON string
+                        // Get the order input as JSON string, or a claim-check reference for large orders
                         String orderJson = ctx.getInput(String.class);
 
+                        // An instance that reuses the ID of a purged order mustn't be answered with its result
+                        if (!ctx.getIsReplaying()) {
+                            resultCache.invalidate(ctx.getInstanceId());
+                            readModel.forget(ctx.getInstanceId());
+                        }
+
+                        // Per-step timestamps for GET /api/orders/{id}/timeline, kept in the custom status
+                        OrderTimeline timeline = OrderTimeline.start(ctx);
+
                         // Process the order through multiple activities
-                        boolean isValid = ctx.callActivity("ValidateOrder", orderJson, Boolean.class).await();
+                        boolean isValid = validateOrder.call(ctx, timeline, orderJson);
                         if (!isValid) {
-                            ctx.complete("{\"status\": \"FAILED\", \"message\": \"Order validation failed\"}");
+                            rejectOrder(ctx, OrderResult.failed("Order validation failed"));
                             return;
                         }
 
-                        // Process payment
-                        String paymentResult = ctx.callActivity("ProcessPayment", orderJson, String.class).await();
-                        if (!paymentResult.contains("\"success\":true")) {
-                            ctx.complete("{\"status\": \"FAILED\", \"message\": \"Payment processing failed\"}");
+                        // Project what each later step needs from the order, so the activity inputs written to
+                        // history carry only those fields rather than the whole document
+                        OrderProjection projection;
+                        try {
+                            projection = projectOrder.call(ctx, timeline, orderJson).forInstance(ctx.getInstanceId());
+                        } catch (TaskFailedException e) {
+                            // The claim-checked order couldn't be read from the store
+                            rejectOrder(ctx, OrderResult.failed("Order document unavailable"));
+                            return;
+                        }
+                        if (projection.isMalformed()) {
+                            rejectOrder(ctx, OrderResult.failed("Malformed order"));
                             return;
                         }
+                        List<InventoryReservation.Batch> batches = projection.getBatches();
+                        PaymentRequest paymentRequest = projection.getPaymentRequest();
+                        ShipmentRequest shipmentRequest = projection.getShipmentRequest();
 
-                        // Ship order
-                        String shipmentResult = ctx.callActivity("ShipOrder", orderJson, String.class).await();
+                        // Reserve stock for the line items, in parallel batches per warehouse
+                        if (!batches.isEmpty()) {
+                            OrderTimeline.Step reservation = timeline.schedule(ctx, InventoryReservation.ACTIVITY_NAME);
+                            boolean reserved = InventoryReservation.reserve(
+                                ctx, batches, inventory.getMaxConcurrency(), gatewayTimeout);
+                            timeline.complete(ctx, reservation);
+                            if (!reserved) {
+                                completeOrder(ctx, readModel, OrderResult.failed("Inventory reservation failed"));
+                                return;
+                            }
+                        }
 
-                        // Return the final result
-                        ctx.complete("{\"status\": \"SUCCESS\", " +
-                                   "\"payment\": " + paymentResult + ", " +
-                                   "\"shipment\": " + shipmentResult + "}");
+                        // Process payment and ship the order - each activity only hands the request to its gateway,
+                        // and the gateway's response arrives as an external event, so no worker thread waits on it.
+                        // With orders.shipping.speculative the label is reserved while the payment is processed.
+                        completeOrder(ctx, readModel, speculativeShipping
+                            ? PaymentAndShipping.speculative(ctx, timeline, paymentRequest, shipmentRequest, gatewayTimeout)
+                            : PaymentAndShipping.sequential(ctx, timeline, paymentRequest, shipmentRequest, gatewayTimeout));
                     };
                 }
-            });
+            }), meterRegistry, lane)));
 
             // Add activities using the factory pattern
-            workerBuilder.addActivity(new TaskActivityFactory() {
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(validateOrder.asActivity(), meterRegistry, lane)));
+
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(projectOrder.asActivity(), meterRegistry, lane)));
+
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(new TaskActivityFactory() {
                 @Override
-                public String getName() { return "ValidateOrder"; }
+                public String getName() { return InventoryReservation.ACTIVITY_NAME; }
 
                 @Override
                 public TaskActivity create() {
                     return ctx -> {
-                        String orderJson = ctx.getInput(String.class);
-                        // Simple validation - check if order contains amount and it's greater than 0
-                        return orderJson.contains("\"amount\"") && !orderJson.contains("\"amount\":0");
+                        // Hand the batch to the inventory service; the result is raised back as the event named
+                        // in the request
+                        InventoryReservation.Request request = ctx.getInput(InventoryReservation.Request.class);
+                        gatewayCallbacks.deliver(request.getInstanceId(), request.getEventName(), "InventoryResult",
+                            inventory.call(request.toPayload()));
+                        return null;
                     };
                 }
-            });
+            }, meterRegistry, lane)));
 
-            workerBuilder.addActivity(new TaskActivityFactory() {
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(new TaskActivityFactory() {
                 @Override
                 public String getName() { return "ProcessPayment"; }
 
                 @Override
                 public TaskActivity create() {
                     return ctx -> {
-                        // Simulate payment processing
-                        sleep(1000); // Simulate processing time
-                        return "{\"success\":true, \"transactionId\":\"TXN" + System.currentTimeMillis() + "\"}";
+                        // Hand the charge to the payment gateway; the response is raised back as PaymentResult.
+                        // The start time is returned for the order's timeline.
+                        long startedAt = System.currentTimeMillis();
+                        PaymentRequest request = ctx.getInput(PaymentRequest.class);
+                        gatewayCallbacks.deliver(
+                            request.getInstanceId(), "PaymentResult", paymentGateway.call(request.toPayload()));
+                        return startedAt;
                     };
                 }
-            });
+            }, meterRegistry, lane)));
 
-            workerBuilder.addActivity(new TaskActivityFactory() {
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(new TaskActivityFactory() {
                 @Override
                 public String getName() { return "ShipOrder"; }
 
                 @Override
                 public TaskActivity create() {
                     return ctx -> {
-                        // Simulate shipping process
-                        sleep(1000); // Simulate processing time
-                        return "{\"trackingNumber\":\"TRACK" + System.currentTimeMillis() + "\"}";
+                        // Hand the shipment to the shipping gateway; the response is raised back as ShipmentResult.
+                        // The start time is returned for the order's timeline.
+                        long startedAt = System.currentTimeMillis();
+                        ShipmentRequest request = ctx.getInput(ShipmentRequest.class);
+                        gatewayCallbacks.deliver(
+                            request.getInstanceId(), "ShipmentResult", shippingGateway.call(request.toPayload()));
+                        return startedAt;
                     };
                 }
-            });
+            }, meterRegistry, lane)));
 
-            return workerBuilder.build();
+            activities.accept(inFlightWork.tracked(PipelineMetrics.timed(new TaskActivityFactory() {
+                @Override
+                public String getName() { return PaymentAndShipping.RELEASE_ACTIVITY; }
+
+                @Override
+                public TaskActivity create() {
+                    return ctx -> {
+                        // Compensation for a label reserved speculatively (orders.shipping.speculative) for an
+                        // order whose payment failed
+                        shippingGateway.release(ctx.getInput(ShipmentRequest.class).toPayload());
+                        return null;
+                    };
+                }
+            }, meterRegistry, lane)));
+        }
+
+        /**
+         * Completes the orchestration with the order's result and publishes it to the local {@link OrderReadModel}
+         * that {@code GET /api/orders/{id}} serves.
+         * <p>
+         * The publish is a local append rather than an activity, so it costs no dispatch and doesn't write the
+         * result to the history a second time. It is done only by the episode that completes the order, never by a
+         * replay, and the result is deterministic, so an episode that is retried publishes the same record again.
+         * It is best-effort: the order completes either way, and is read from the scheduler if it isn't published.
+         */
+        private static void completeOrder(TaskOrchestrationContext ctx, OrderReadModel readModel, OrderResult result) {
+            ctx.complete(result);
+            if (!ctx.getIsReplaying()) {
+                try {
+                    readModel.publish(ctx.getInstanceId(), "COMPLETED", result.toString());
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to publish order {} to the read model: {}",
+                        ctx.getInstanceId(), e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Completes the orchestration of an order that was rejected before any gateway step, without publishing
+         * it; such orders are rarely read back, and are cached in {@link OrderResultCache} when they are.
+         */
+        private static void rejectOrder(TaskOrchestrationContext ctx, OrderResult result) {
+            ctx.complete(result);
         }
 
         @Bean
-        public DurableTaskClient durableTaskClient() {
-            
+        @Primary
+        public DurableTaskClient durableTaskClient(ObjectProvider<SchedulerChannelPool> channelPool) {
+            // Create client on the shared channel, or using Azure-managed extensions when it is disabled
+            SchedulerChannelPool channel = channelPool.getIfAvailable();
+            if (channel != null) {
+                return new DurableTaskGrpcClientBuilder().grpcChannel(channel).build();
+            }
+            return DurableTaskSchedulerClientExtensions.createClientBuilder(connectionString()).build();
+        }
+
+        @Bean
+        @ConditionalOnProperty("orders.lanes.express.task-hub")
+        public DurableTaskClient expressDurableTaskClient(
+                ObjectProvider<SchedulerChannelPool> channelPool,
+                @Value("${orders.lanes.express.task-hub}") String taskHub) {
+            SchedulerChannelPool channel = channelPool.getIfAvailable();
+            if (channel != null) {
+                return new DurableTaskGrpcClientBuilder().grpcChannel(channel.forTaskHub(taskHub)).build();
+            }
+            return DurableTaskSchedulerClientExtensions.createClientBuilder(connectionString(taskHub)).build();
+        }
+
+        // use system env variable DURABLE_TASK_CONNECTION_STRING or default to local development
+        private static String connectionString() {
             String connectionString = System.getenv("DURABLE_TASK_CONNECTION_STRING");
             if (connectionString == null) {
                 connectionString = "Endpoint=http://localhost:8080;TaskHub=default;Authentication=None";
             }
+            return connectionString;
+        }
 
-            // Create client using Azure-managed extensions
-            return DurableTaskSchedulerClientExtensions.createClientBuilder(connectionString).build();
+        // the same connection string with another task hub
+        private static String connectionString(String taskHub) {
+            return connectionString().replaceAll("(?i)TaskHub=[^;]*", "TaskHub=" + Matcher.quoteReplacement(taskHub));
         }
     }
 
-    private static void sleep(int millis) {
+    /**
+     * Validates the typed order - it must carry a top-level amount greater than 0. Pure and deterministic, so it
+     * may run inline in the orchestrator.
+     */
+    static boolean validateOrder(String orderJson) {
         try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            return Order.parse(orderJson).isValid();
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rejecting malformed order: {}", e.getMessage());
+            }
+            return false;
         }
     }
 }
@@ -156,29 +393,247 @@ public class WebApi {
 @RequestMapping("/api/orders")
 class OrderController {
 
-    private final DurableTaskClient client;
+    private final SingleFlightReads reads;
+    private final IdempotentOrderIntake intake;
+    private final BulkOrderIntake bulkIntake;
+    private final OrderStatusWatcher watcher;
+    private final OrderResultCache resultCache;
+    private final OrderReadModel readModel;
+    private final BatchOrderStatus batchStatus;
+    private final OrderListing listing;
+    private final OrderTimelines timelines;
+    private final long sseTimeoutMs;
+    private final long maxWaitMs;
 
-    public OrderController(DurableTaskClient client) {
-        this.client = client;
+    public OrderController(
+            SingleFlightReads reads,
+            IdempotentOrderIntake intake,
+            BulkOrderIntake bulkIntake,
+            OrderStatusWatcher watcher,
+            OrderResultCache resultCache,
+            OrderReadModel readModel,
+            BatchOrderStatus batchStatus,
+            OrderListing listing,
+            OrderTimelines timelines,
+            @Value("${orders.watch.sse-timeout-ms:300000}") long sseTimeoutMs,
+            @Value("${orders.watch.max-wait-ms:60000}") long maxWaitMs) {
+        this.reads = reads;
+        this.intake = intake;
+        this.bulkIntake = bulkIntake;
+        this.watcher = watcher;
+        this.resultCache = resultCache;
+        this.readModel = readModel;
+        this.batchStatus = batchStatus;
+        this.listing = listing;
+        this.timelines = timelines;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.maxWaitMs = maxWaitMs;
     }
 
+    /**
+     * Schedules an order. {@code priority=express} routes it to the express lane when one is configured.
+     */
     @PostMapping
-    public String createOrder(@RequestBody String orderJson) throws Exception {
-        String instanceId = client.scheduleNewOrchestrationInstance(
-            "ProcessOrderOrchestration",
-            orderJson
-        );
+    @Timed(value = "orders.create", histogram = true)
+    public ResponseEntity<String> createOrder(
+            @RequestBody String orderJson,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestParam(required = false) String priority) throws Exception {
+        boolean express;
+        try {
+            express = OrderLanes.isExpress(priority);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+
+        // Retries of the same order resolve to the same instance when idempotent intake is enabled
+        String instanceId = intake.schedule(idempotencyKey, orderJson, express);
 
         // Return the instance ID immediately without waiting for completion
-        return "{\"instanceId\": \"" + instanceId + "\"}";
+        return ResponseEntity.ok("{\"instanceId\": \"" + instanceId + "\"}");
+    }
+
+    /**
+     * Rejects new orders with 429 Too Many Requests while too many orders are in flight.
+     */
+    @ExceptionHandler(OrderAdmission.AdmissionRejectedException.class)
+    public ResponseEntity<String> onAdmissionRejected(OrderAdmission.AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+            .body("{\"error\": \"Too many orders in flight\"}");
+    }
+
+    /**
+     * Schedules one orchestration per line of an NDJSON upload and streams back one result line per order,
+     * followed by a summary line.
+     */
+    @PostMapping(path = "/bulk", produces = "application/x-ndjson")
+    public StreamingResponseBody createOrders(InputStream body) {
+        return out -> bulkIntake.process(body, out);
     }
 
-    @GetMapping("/{instanceId}")
+    /**
+     * Lists orders one page at a time, optionally filtered by runtime status and creation time (ISO-8601). Pass
+     * the returned {@code continuationToken} back to get the next page.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = "orders.list", histogram = true)
+    public ResponseEntity<StreamingResponseBody> listOrders(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) String createdFrom,
+            @RequestParam(required = false) String createdTo,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String continuationToken,
+            @RequestParam(defaultValue = "false") boolean includePayloads) {
+        OrderListing.Page page;
+        try {
+            page = listing.fetchPage(status, createdFrom, createdTo, pageSize, continuationToken, includePayloads);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(out -> out.write(
+                ("{\"error\": \"" + new String(JsonStringEncoder.getInstance().quoteAsString(e.getMessage())) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8)));
+        }
+        return ResponseEntity.ok(out -> listing.write(page, includePayloads, out));
+    }
+
+    /**
+     * Returns the status of many orders in one call; the body is a JSON array of instance IDs. Outputs are
+     * included only for finished orders.
+     */
+    @PostMapping(path = "/status:batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = "orders.status.batch", histogram = true)
+    public ResponseEntity<String> getOrders(@RequestBody List<String> instanceIds) {
+        if (instanceIds.size() > batchStatus.getMaxIds()) {
+            return ResponseEntity.badRequest()
+                .body("{\"error\": \"At most " + batchStatus.getMaxIds() + " instance IDs per batch\"}");
+        }
+        return ResponseEntity.ok(batchStatus.lookup(instanceIds));
+    }
+
+    /**
+     * Returns the order's output. Finished orders are served from memory or the local {@link OrderReadModel} when
+     * possible. The serialized orchestration output is already the JSON document, so it is passed through as the
+     * response body without being decoded and re-encoded.
+     */
+    @GetMapping(path = "/{instanceId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed(value = "orders.get", histogram = true)
     public String getOrder(@PathVariable String instanceId) throws Exception {
-        OrchestrationMetadata metadata = client.getInstanceMetadata(instanceId, true);
+        // Finished orders can't change, so serve them without a backend round trip
+        String cached = resultCache.get(instanceId);
+        if (cached == null) {
+            cached = readModel.getOutput(instanceId);
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        // Concurrent polls of the same running order share one backend call
+        OrchestrationMetadata metadata = reads.getInstanceMetadata(instanceId, true);
         if (metadata == null) {
             return "{\"error\": \"Order not found\"}";
         }
-        return metadata.readOutputAs(String.class);
+        String output = OrderResult.outputJson(metadata);
+        if (OrderStatusWatcher.isTerminal(metadata.getRuntimeStatus())) {
+            resultCache.put(instanceId, metadata.getRuntimeStatus(), output);
+        }
+        return output;
+    }
+
+    /**
+     * Long-poll variant of {@link #getOrder}: holds the request until the order finishes or {@code waitMs}
+     * elapses. A finished order returns its output; otherwise 202 Accepted with the current status is returned.
+     */
+    @GetMapping(path = "/{instanceId}", params = "waitMs")
+    public DeferredResult<ResponseEntity<String>> waitForOrder(
+            @PathVariable String instanceId,
+            @RequestParam long waitMs) {
+        String cached = resultCache.get(instanceId);
+        if (cached == null) {
+            cached = readModel.getOutput(instanceId);
+        }
+        if (cached != null) {
+            DeferredResult<ResponseEntity<String>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.ok(cached));
+            return result;
+        }
+
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>(Math.max(1, Math.min(waitMs, maxWaitMs)));
+        AtomicReference<OrchestrationMetadata> lastSeen = new AtomicReference<>();
+
+        OrderStatusWatcher.Subscription subscription = watcher.subscribe(instanceId, metadata -> {
+            if (metadata == null) {
+                result.setResult(ResponseEntity.ok("{\"error\": \"Order not found\"}"));
+            } else if (OrderStatusWatcher.isTerminal(metadata.getRuntimeStatus())) {
+                String output = OrderResult.outputJson(metadata);
+                resultCache.put(instanceId, metadata.getRuntimeStatus(), output);
+                result.setResult(ResponseEntity.ok(output));
+            } else {
+                lastSeen.set(metadata);
+            }
+        });
+        result.onTimeout(() -> result.setResult(ResponseEntity.accepted().body(statusJson(instanceId, lastSeen.get()))));
+        result.onCompletion(subscription::cancel);
+        return result;
+    }
+
+    /**
+     * Streams the order's status transitions as Server-Sent Events: a {@code status} event per transition and,
+     * once the order finishes, a single {@code result} event with its output.
+     */
+    @GetMapping(path = "/{instanceId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrder(@PathVariable String instanceId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        OrderStatusWatcher.Subscription subscription = watcher.subscribe(instanceId, metadata -> {
+            try {
+                if (metadata == null) {
+                    emitter.send(SseEmitter.event().name("error").data("{\"error\": \"Order not found\"}"));
+                    emitter.complete();
+                    return;
+                }
+                emitter.send(SseEmitter.event().name("status").data(statusJson(instanceId, metadata)));
+                if (OrderStatusWatcher.isTerminal(metadata.getRuntimeStatus())) {
+                    String output = OrderResult.outputJson(metadata);
+                    resultCache.put(instanceId, metadata.getRuntimeStatus(), output);
+                    if (output != null) {
+                        emitter.send(SseEmitter.event().name("result").data(output));
+                    }
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // The client disconnected
+                emitter.completeWithError(e);
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    /**
+     * Returns when each step of the order was scheduled and completed, and for the gateway steps when their
+     * activity started, with the durations in between; see {@link OrderTimelines}.
+     */
+    @GetMapping(path = "/{instanceId}/timeline", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getOrderTimeline(@PathVariable String instanceId) {
+        String timeline = timelines.timeline(instanceId);
+        if (timeline == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("{\"error\": \"Order not found\"}");
+        }
+        return ResponseEntity.ok(timeline);
+    }
+
+    /**
+     * Returns per-step latency percentiles over the orders completed within {@code window} (ISO-8601 duration).
+     */
+    @GetMapping(path = "/timeline", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String getTimelineSummary(@RequestParam(defaultValue = "PT15M") Duration window) {
+        return timelines.summary(window);
+    }
+
+    private static String statusJson(String instanceId, OrchestrationMetadata metadata) {
+        String runtimeStatus = metadata != null ? "\"" + metadata.getRuntimeStatus() + "\"" : "null";
+        return "{\"instanceId\": \"" + instanceId + "\", \"runtimeStatus\": " + runtimeStatus + "}";
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerConnectionString;
+import com.microsoft.durabletask.azuremanaged.DurableTaskSchedulerWorkerOptions;
+import io.grpc.Channel;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The gRPC channels of the Durable Task workers, owned by {@link WorkerLifecycle}.
+ * <p>
+ * A worker reports the result of every activity and orchestration episode over its channel, including the ones
+ * that finish while the worker drains on shutdown. So instead of letting the worker create and close a channel of
+ * its own, each worker is given one from here, created by the SDK's {@link DurableTaskSchedulerWorkerOptions}, and
+ * {@link WorkerLifecycle} closes them only once the drain has finished or given up. With
+ * {@code orders.grpc.shared-channel} the workers use the shared pool instead, which is closed after the lifecycle
+ * has stopped.
+ */
+@Component
+class WorkerChannels {
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a channel for a worker of the task hub in the given connection string.
+     */
+    Channel open(String connectionString) {
+        DurableTaskSchedulerConnectionString connection = new DurableTaskSchedulerConnectionString(connectionString);
+        return register(new DurableTaskSchedulerWorkerOptions()
+            .setEndpointAddress(connection.getEndpoint())
+            .setTaskHubName(connection.getTaskHubName())
+            .setCredential(connection.getCredential())
+            .createGrpcChannel());
+    }
+
+    /**
+     * Takes ownership of a channel, so that it is closed with the others.
+     */
+    Channel register(Channel channel) {
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Closes every channel, waiting a few seconds for calls still in progress.
+     */
+    @PreDestroy
+    void close() throws InterruptedException {
+        SchedulerChannelPool.shutdown(channels);
+    }
+}
@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskGrpcWorker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the Durable Task workers (one per {@link OrderLanes lane}) with the application context and drains them
+ * on shutdown.
+ * <p>
+ * Stopping the worker outright abandons the activities and orchestration episodes it is running; the scheduler
+ * only re-dispatches them once their locks time out, which adds seconds to every affected order during a rolling
+ * deploy. On shutdown this lifecycle instead stops the worker's work-item stream, so no new work is accepted,
+ * and then waits up to {@code orders.worker.drain-timeout} for running work and undelivered gateway responses to
+ * finish. The workers' channels ({@link WorkerChannels}) stay open until then, so work that finishes during the
+ * drain can still report its result. The drain time is recorded as {@code orders.worker.drain} and anything still
+ * running at the deadline is counted as {@code orders.worker.abandoned}.
+ * <p>
+ * The lifecycle stops after the web server, so no new orders are scheduled while it drains, and before the
+ * Durable Task client and the shared channel are closed, which gateway deliveries still need.
+ */
+@Component
+class WorkerLifecycle implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerLifecycle.class);
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final List<DurableTaskGrpcWorker> workers;
+    private final InFlightWork inFlightWork;
+    private final GatewayCallbacks gatewayCallbacks;
+    private final WorkerChannels workerChannels;
+    private final Duration drainTimeout;
+    private final Timer drainTimer;
+    private final Counter abandoned;
+    private volatile boolean running;
+
+    WorkerLifecycle(
+            List<DurableTaskGrpcWorker> workers,
+            InFlightWork inFlightWork,
+            GatewayCallbacks gatewayCallbacks,
+            WorkerChannels workerChannels,
+            MeterRegistry registry,
+            @Value("${orders.worker.drain-timeout:PT25S}") Duration drainTimeout) {
+        this.workers = workers;
+        this.inFlightWork = inFlightWork;
+        this.gatewayCallbacks = gatewayCallbacks;
+        this.workerChannels = workerChannels;
+        this.drainTimeout = drainTimeout;
+        this.drainTimer = Timer.builder("orders.worker.drain")
+            .description("Time taken to drain the worker on shutdown")
+            .register(registry);
+        this.abandoned = Counter.builder("orders.worker.abandoned")
+            .description("Work items and gateway responses still pending when the drain deadline passed")
+            .register(registry);
+    }
+
+    @Override
+    public void start() {
+        workers.forEach(DurableTaskGrpcWorker::start);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drain();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        // Drain off the shutdown thread so that other lifecycles in the same phase can stop in parallel
+        Thread drainThread = new Thread(() -> {
+            try {
+                drain();
+            } finally {
+                callback.run();
+            }
+        }, "worker-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server (DEFAULT_PHASE and DEFAULT_PHASE - 1)
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void drain() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + drainTimeout.toNanos();
+        logger.info("Draining worker: {} work items and {} gateway responses in flight",
+            inFlightWork.count(), gatewayCallbacks.pending());
+
+        // Stop receiving work items; the ones already dispatched keep running on the worker's own threads, and
+        // report their results over the worker's channel, which stays open until the drain is over
+        Thread stopThread = new Thread(() -> workers.forEach(DurableTaskGrpcWorker::stop), "worker-stop");
+        stopThread.setDaemon(true);
+        stopThread.start();
+
+        try {
+            while (outstanding() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long drainNanos = System.nanoTime() - startNanos;
+        int remaining = outstanding();
+        drainTimer.record(drainNanos, TimeUnit.NANOSECONDS);
+        abandoned.increment(remaining);
+        if (remaining > 0) {
+            logger.warn("Worker drain timed out after {} ms with {} items abandoned",
+                TimeUnit.NANOSECONDS.toMillis(drainNanos), remaining);
+        } else {
+            logger.info("Worker drained in {} ms", TimeUnit.NANOSECONDS.toMillis(drainNanos));
+        }
+        try {
+            workerChannels.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int outstanding() {
+        return inFlightWork.count() + gatewayCallbacks.pending();
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.OrchestrationRuntimeStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchOrderStatusTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlightReads reads = mock(SingleFlightReads.class);
+    private final OrderResultCache resultCache = new OrderResultCache(registry, 1 << 20);
+    private OrderReadModel readModel;
+    private BatchOrderStatus batchStatus;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        readModel = new OrderReadModel(registry, directory.toString(), 1 << 16);
+        batchStatus = new BatchOrderStatus(reads, resultCache, readModel, 100, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        batchStatus.shutdown();
+        readModel.close();
+    }
+
+    @Test
+    void finishedOrdersKeepTheStatusTheyFinishedWith() {
+        resultCache.put("failed-1", OrchestrationRuntimeStatus.FAILED, "{\"error\":\"boom\"}");
+        resultCache.put("terminated-1", OrchestrationRuntimeStatus.TERMINATED, "{\"reason\":\"cancelled\"}");
+        resultCache.put("completed-1", OrchestrationRuntimeStatus.COMPLETED, "{\"status\":\"SUCCESS\"}");
+
+        assertEquals("[{\"id\":\"failed-1\",\"status\":\"FAILED\",\"output\":{\"error\":\"boom\"}},"
+                + "{\"id\":\"terminated-1\",\"status\":\"TERMINATED\",\"output\":{\"reason\":\"cancelled\"}},"
+                + "{\"id\":\"completed-1\",\"status\":\"COMPLETED\",\"output\":{\"status\":\"SUCCESS\"}}]",
+            batchStatus.lookup(Arrays.asList("failed-1", "terminated-1", "completed-1")));
+        verifyNoInteractions(reads);
+    }
+
+    @Test
+    void ordersInTheReadModelAreNotLookedUp() {
+        readModel.publish("order-1", "COMPLETED", "{\"status\":\"FAILED\",\"message\":\"Order validation failed\"}");
+
+        assertEquals("[{\"id\":\"order-1\",\"status\":\"COMPLETED\","
+                + "\"output\":{\"status\":\"FAILED\",\"message\":\"Order validation failed\"}}]",
+            batchStatus.lookup(Arrays.asList("order-1")));
+        verifyNoInteractions(reads);
+    }
+}
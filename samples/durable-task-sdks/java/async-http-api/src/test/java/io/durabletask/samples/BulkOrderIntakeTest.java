@@ -0,0 +1,67 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkOrderIntakeTest {
+    private static final String ORDERS = "{\"orderId\":\"ORD-1\"}\n{\"orderId\":\"ORD-2\"}\n";
+
+    private final IdempotentOrderIntake intake = mock(IdempotentOrderIntake.class);
+    private final BulkOrderIntake bulkIntake = new BulkOrderIntake(intake, 4);
+
+    @AfterEach
+    void tearDown() {
+        bulkIntake.shutdown();
+    }
+
+    @Test
+    void failedUploadCancelsOrdersStillBeingScheduled() throws Exception {
+        CountDownLatch scheduling = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        when(intake.schedule(isNull(), anyString())).thenAnswer(invocation -> {
+            scheduling.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException("interrupted");
+            }
+            return "never";
+        });
+        // The connection drops while both orders are being scheduled
+        InputStream dropped = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    scheduling.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Connection reset");
+            }
+        };
+        InputStream body = new SequenceInputStream(
+            new ByteArrayInputStream(ORDERS.getBytes(StandardCharsets.UTF_8)), dropped);
+        OutputStream out = mock(OutputStream.class);
+
+        assertThrows(IOException.class, () -> bulkIntake.process(body, out));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        verify(out, after(200).never()).write(any(byte[].class));
+    }
+}
@@ -0,0 +1,66 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClaimCheckStoreTest {
+    private static final String LARGE_ORDER = "{\"orderId\":\"ORD-1\",\"amount\":10,\"notes\":\"" + repeat('x', 200) + "\"}";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesLargeDocumentsAndResolvesTheirReference() throws IOException {
+        ClaimCheckStore store = store(64);
+
+        assertEquals("{\"small\":true}", store.offload("{\"small\":true}"));
+        String reference = store.offload(LARGE_ORDER);
+        assertTrue(reference.startsWith("claim-check:sha256:"));
+        assertEquals(LARGE_ORDER, store.resolve(reference));
+    }
+
+    @Test
+    void rejectsReferencesOutsideTheStore() throws IOException {
+        Path outside = Files.write(directory.resolve("secret.json"), "{}".getBytes(StandardCharsets.UTF_8));
+        ClaimCheckStore store = new ClaimCheckStore(
+            new SimpleMeterRegistry(), directory.resolve("payloads").toString(), 64);
+
+        assertTrue(Files.exists(outside));
+        assertThrows(IllegalArgumentException.class, () -> store.resolve("claim-check:sha256:../secret"));
+    }
+
+    @Test
+    void storesSmallDocumentsThatLookLikeAReference() throws IOException {
+        for (int threshold : new int[] {64, -1}) {
+            ClaimCheckStore store = store(threshold);
+            String lookalike = "claim-check:sha256:../../etc/passwd";
+
+            String payload = store.offload(lookalike);
+
+            assertNotEquals(lookalike, payload);
+            assertEquals(lookalike, store.resolve(payload));
+        }
+    }
+
+    private ClaimCheckStore store(int thresholdBytes) throws IOException {
+        return new ClaimCheckStore(new SimpleMeterRegistry(), directory.toString(), thresholdBytes);
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GatewayCallbacksTest {
+    private static final String INSTANCE_ID = "order-instance-1";
+    private static final String PAID = "{\"success\":true,\"transactionId\":\"TXN1\"}";
+
+    private final OrderLanes lanes = mock(OrderLanes.class);
+    private final DurableTaskClient client = mock(DurableTaskClient.class);
+    private GatewayCallbacks callbacks;
+
+    @AfterEach
+    void tearDown() {
+        callbacks.shutdown();
+    }
+
+    @Test
+    void failedRaiseIsRetriedUntilDelivered() throws InterruptedException {
+        callbacks = callbacks(Duration.ofMinutes(5));
+        doThrow(new RuntimeException("scheduler unavailable"))
+            .doThrow(new RuntimeException("scheduler unavailable"))
+            .doNothing()
+            .when(client).raiseEvent(anyString(), anyString(), any());
+
+        callbacks.deliver(INSTANCE_ID, "PaymentResult", CompletableFuture.completedFuture(PAID));
+        awaitDelivered();
+
+        verify(client, times(3)).raiseEvent(INSTANCE_ID, "PaymentResult", PAID);
+    }
+
+    @Test
+    void raiseIsAbandonedOnceTheOrderStoppedWaiting() throws InterruptedException {
+        // Attempts at 0 ms and 100 ms; the next one would be at 300 ms, after the timeout
+        callbacks = callbacks(Duration.ofMillis(250));
+        doThrow(new RuntimeException("scheduler unavailable"))
+            .when(client).raiseEvent(anyString(), anyString(), any());
+
+        callbacks.deliver(INSTANCE_ID, "PaymentResult", CompletableFuture.completedFuture(PAID));
+        awaitDelivered();
+
+        verify(client, times(2)).raiseEvent(INSTANCE_ID, "PaymentResult", PAID);
+    }
+
+    private GatewayCallbacks callbacks(Duration timeout) {
+        when(lanes.client(any())).thenReturn(client);
+        return new GatewayCallbacks(lanes, new SimpleMeterRegistry(), timeout);
+    }
+
+    private void awaitDelivered() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (callbacks.pending() > 0) {
+            assertTrue(System.nanoTime() < deadline, "response still pending");
+            Thread.sleep(10);
+        }
+    }
+}
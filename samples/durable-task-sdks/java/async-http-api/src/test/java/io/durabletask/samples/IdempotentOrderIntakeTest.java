@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import com.microsoft.durabletask.NewOrchestrationInstanceOptions;
+import com.microsoft.durabletask.OrchestrationRuntimeStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotentOrderIntakeTest {
+    private static final String ORDER = "{\"orderId\":\"ORD-1\",\"customerId\":\"CUST-1\",\"amount\":10}";
+
+    private final OrderLanes lanes = mock(OrderLanes.class);
+    private final OrderAdmission admission = mock(OrderAdmission.class);
+    private final ClaimCheckStore claimCheck = mock(ClaimCheckStore.class);
+    private final DurableTaskClient client = mock(DurableTaskClient.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OrderResultCache resultCache = new OrderResultCache(registry, 1 << 20);
+    private OrderReadModel readModel;
+    private IdempotentOrderIntake intake;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(lanes.instanceIdFor(anyBoolean(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(lanes.client(any())).thenReturn(client);
+        when(claimCheck.offload(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        readModel = new OrderReadModel(registry, directory.toString(), 1 << 16);
+        intake = new IdempotentOrderIntake(
+            lanes, admission, claimCheck, resultCache, readModel, registry, true, Duration.ofMinutes(5), 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        readModel.close();
+    }
+
+    @Test
+    void failedScheduleWithFailedLookupIsRetried() {
+        RuntimeException unavailable = new RuntimeException("scheduler unavailable");
+        RuntimeException lookupFailed = new RuntimeException("lookup failed");
+        when(client.scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+                any(NewOrchestrationInstanceOptions.class)))
+            .thenThrow(unavailable)
+            .thenAnswer(IdempotentOrderIntakeTest::scheduledInstanceId);
+        when(client.getInstanceMetadata(anyString(), eq(false))).thenThrow(lookupFailed);
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> intake.schedule(null, ORDER));
+        assertSame(unavailable, thrown);
+        assertArrayEquals(new Throwable[] {lookupFailed}, thrown.getSuppressed());
+        verify(admission).release();
+
+        // The retry reaches the backend instead of being answered from the dedup window
+        assertTrue(intake.schedule(null, ORDER).startsWith("order-"));
+        verify(client, times(2)).scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+            any(NewOrchestrationInstanceOptions.class));
+    }
+
+    @Test
+    void retryWithinWindowIsAnsweredFromMemory() {
+        when(client.scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+                any(NewOrchestrationInstanceOptions.class)))
+            .thenAnswer(IdempotentOrderIntakeTest::scheduledInstanceId);
+
+        String instanceId = intake.schedule(null, ORDER);
+        assertEquals(instanceId, intake.schedule(null, ORDER));
+        verify(client, times(1)).scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+            any(NewOrchestrationInstanceOptions.class));
+    }
+
+    @Test
+    void sameOrderIdFromAnotherCustomerIsANewOrder() {
+        when(client.scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+                any(NewOrchestrationInstanceOptions.class)))
+            .thenAnswer(IdempotentOrderIntakeTest::scheduledInstanceId);
+
+        String instanceId = intake.schedule(null, ORDER);
+        String otherCustomer =
+            intake.schedule(null, "{\"orderId\":\"ORD-1\",\"customerId\":\"CUST-2\",\"amount\":10}");
+
+        assertNotEquals(instanceId, otherCustomer);
+        assertTrue(otherCustomer.startsWith("order-"));
+    }
+
+    @Test
+    void orderWithoutCustomerIdGetsARandomInstanceId() {
+        when(client.scheduleNewOrchestrationInstance("ProcessOrderOrchestration", "{\"orderId\":\"ORD-1\"}"))
+            .thenReturn("random-1");
+
+        assertEquals("random-1", intake.schedule(null, "{\"orderId\":\"ORD-1\"}"));
+        verify(client, never()).scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+            any(NewOrchestrationInstanceOptions.class));
+    }
+
+    @Test
+    void resubmissionAfterPurgeForgetsTheOldResult() {
+        when(client.scheduleNewOrchestrationInstance(eq("ProcessOrderOrchestration"),
+                any(NewOrchestrationInstanceOptions.class)))
+            .thenAnswer(IdempotentOrderIntakeTest::scheduledInstanceId);
+        String instanceId = intake.schedule(null, ORDER);
+        resultCache.put(instanceId, OrchestrationRuntimeStatus.COMPLETED, "{\"status\":\"SUCCESS\"}");
+        readModel.publish(instanceId, "COMPLETED", "{\"status\":\"SUCCESS\"}");
+
+        // The instance was purged and the dedup window has passed, so the same order starts a new instance
+        IdempotentOrderIntake later = new IdempotentOrderIntake(
+            lanes, admission, claimCheck, resultCache, readModel, registry, true, Duration.ofMinutes(5), 1000);
+        assertEquals(instanceId, later.schedule(null, ORDER));
+
+        assertNull(resultCache.get(instanceId));
+        assertNull(readModel.get(instanceId));
+    }
+
+    private static String scheduledInstanceId(InvocationOnMock invocation) {
+        // The client returns the ID of the instance it scheduled
+        return invocation.<NewOrchestrationInstanceOptions>getArgument(1).getInstanceId();
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskCanceledException;
+import com.microsoft.durabletask.TaskFailedException;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Reservation window of {@link InventoryReservation#reserve}. Every task of the mocked orchestration context has
+ * finished by the time it is returned, so {@code anyOf} picks the oldest task in flight.
+ */
+class InventoryReservationTest {
+    private static final String RESERVED = "{\"success\":true}";
+
+    private final TaskOrchestrationContext ctx = mock(TaskOrchestrationContext.class);
+    private final List<String> handedOff = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(ctx.getInstanceId()).thenReturn("order-instance-1");
+        when(ctx.callActivity(eq(InventoryReservation.ACTIVITY_NAME), any())).thenAnswer(invocation -> {
+            handedOff.add(invocation.<InventoryReservation.Request>getArgument(1).getEventName());
+            return completed(null);
+        });
+        when(ctx.anyOf(anyList())).thenAnswer(invocation -> completed(invocation.<List<Task<?>>>getArgument(0).get(0)));
+    }
+
+    @Test
+    void everyBatchReserved() throws IOException {
+        resultsAre(RESERVED);
+
+        assertTrue(reserve(3, 2));
+        assertEquals(3, handedOff.size());
+    }
+
+    @Test
+    void declinedBatchStopsScheduling() throws IOException {
+        resultsAre("{\"success\":false, \"error\":\"out of stock\"}");
+
+        assertFalse(reserve(5, 1));
+        assertEquals(1, handedOff.size());
+    }
+
+    @Test
+    void failedHandOffIsNotReserved() throws IOException {
+        when(ctx.callActivity(eq(InventoryReservation.ACTIVITY_NAME), any())).thenAnswer(invocation -> {
+            handedOff.add(invocation.<InventoryReservation.Request>getArgument(1).getEventName());
+            return failed(TaskFailedException.class);
+        });
+        resultsAre(RESERVED);
+
+        assertFalse(reserve(5, 2));
+        assertEquals(2, handedOff.size());
+    }
+
+    @Test
+    void timedOutResultIsNotReserved() throws IOException {
+        when(ctx.waitForExternalEvent(anyString(), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> failed(TaskCanceledException.class));
+
+        assertFalse(reserve(5, 1));
+        assertEquals(1, handedOff.size());
+    }
+
+    private boolean reserve(int items, int maxConcurrency) throws IOException {
+        StringBuilder order = new StringBuilder("{\"orderId\":\"ORD-1\",\"items\":[");
+        for (int i = 0; i < items; i++) {
+            order.append(i > 0 ? "," : "").append("{\"productId\":\"P-").append(i).append("\",\"quantity\":1}");
+        }
+        List<InventoryReservation.Batch> batches = InventoryReservation.batches(order.append("]}").toString(), 1);
+        return InventoryReservation.reserve(ctx, batches, maxConcurrency, Duration.ofMinutes(5));
+    }
+
+    private void resultsAre(String result) {
+        when(ctx.waitForExternalEvent(anyString(), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> completed(result));
+    }
+
+    private static <V> Task<V> completed(V value) {
+        Task<V> task = task();
+        when(task.await()).thenReturn(value);
+        return task;
+    }
+
+    private static <V> Task<V> failed(Class<? extends TaskFailedException> failure) {
+        Task<V> task = task();
+        when(task.await()).thenThrow(failure);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Task<V> task() {
+        return mock(Task.class);
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.TaskOrchestration;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import com.microsoft.durabletask.TaskOrchestrationFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderAdmissionTest {
+    private final OrderLanes lanes = mock(OrderLanes.class);
+    private final TaskOrchestrationContext ctx = mock(TaskOrchestrationContext.class);
+    private OrderAdmission admission;
+
+    @BeforeEach
+    void setUp() {
+        when(lanes.clients()).thenReturn(Collections.emptyList());
+        admission = new OrderAdmission(
+            lanes, new SimpleMeterRegistry(), 2, 60_000, Duration.ofHours(1), 10, Duration.ofHours(1), 60);
+        // Let the startup reconcile finish, so it doesn't reset the count under the test
+        verify(lanes, timeout(5000)).clients();
+    }
+
+    @AfterEach
+    void tearDown() {
+        admission.shutdown();
+    }
+
+    @Test
+    void completingEpisodeFreesTheSlot() {
+        admission.admit();
+        admission.admit();
+        assertThrows(OrderAdmission.AdmissionRejectedException.class, admission::admit);
+
+        // Replays of a completed orchestration don't count it again
+        when(ctx.getIsReplaying()).thenReturn(true);
+        run();
+        assertEquals(2, admission.getInFlight());
+
+        when(ctx.getIsReplaying()).thenReturn(false);
+        run();
+        assertEquals(1, admission.getInFlight());
+        admission.admit();
+    }
+
+    @Test
+    void completionsOfOrdersAdmittedElsewhereStopAtZero() {
+        admission.admit();
+        admission.completed();
+        admission.completed();
+
+        assertEquals(0, admission.getInFlight());
+    }
+
+    private void run() {
+        admission.tracked(new TaskOrchestrationFactory() {
+            @Override
+            public String getName() { return "ProcessOrderOrchestration"; }
+
+            @Override
+            public TaskOrchestration create() {
+                return context -> context.complete(null);
+            }
+        }).create().run(ctx);
+    }
+}
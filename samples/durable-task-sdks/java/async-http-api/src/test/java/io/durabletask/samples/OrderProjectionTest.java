@@ -0,0 +1,46 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderProjectionTest {
+    // Serializes activity results the way the Durable Task data converter does
+    private final ObjectMapper dataConverter = new ObjectMapper();
+
+    @Test
+    void projectionSurvivesTheHistoryRoundTrip() throws Exception {
+        String order = "{\"orderId\":\"ORD-1\",\"customerId\":\"CUST-1\",\"amount\":42.5,"
+            + "\"shippingAddress\":{\"city\":\"Seattle\",\"zipCode\":\"98101\"},"
+            + "\"items\":[{\"productId\":\"P-1\",\"quantity\":2,\"warehouse\":\"west\"},{\"productId\":\"P-2\",\"quantity\":1}]}";
+
+        // As recorded by the activity for a claim-checked order, and read back by the orchestrator
+        OrderProjection recorded = dataConverter.readValue(
+            dataConverter.writeValueAsString(OrderProjection.project(order, 1)), OrderProjection.class)
+            .forInstance("instance-1");
+
+        assertFalse(recorded.isMalformed());
+        assertEquals(2, recorded.getBatches().size());
+        assertEquals("west", recorded.getBatches().get(0).getWarehouse());
+        assertEquals("P-1", recorded.getBatches().get(0).getItems().get(0).getProductId());
+        assertEquals("instance-1", recorded.getPaymentRequest().getInstanceId());
+        assertEquals(new BigDecimal("42.5"), recorded.getPaymentRequest().getAmount());
+        assertEquals("instance-1", recorded.getShipmentRequest().getInstanceId());
+        assertEquals("Seattle", recorded.getShipmentRequest().getShippingAddress().path("city").asText());
+        assertEquals(2, recorded.getShipmentRequest().getItems().size());
+    }
+
+    @Test
+    void malformedOrderIsReportedRatherThanThrown() {
+        OrderProjection projection = OrderProjection.project("{\"items\":[{\"quantity\":1}]}", 1)
+            .forInstance("instance-1");
+
+        assertTrue(projection.isMalformed());
+        assertNull(projection.getPaymentRequest());
+    }
+}
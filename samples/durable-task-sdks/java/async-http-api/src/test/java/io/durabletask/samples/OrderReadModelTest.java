@@ -0,0 +1,42 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderReadModelTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void forgottenOrderStaysForgottenAfterRestart() throws IOException {
+        OrderReadModel readModel = open();
+        readModel.publish("order-1", "COMPLETED", "{\"status\":\"SUCCESS\"}");
+        readModel.publish("order-2", "COMPLETED", "{\"status\":\"SUCCESS\"}");
+        readModel.forget("order-1");
+        assertNull(readModel.get("order-1"));
+        readModel.close();
+
+        OrderReadModel rebuilt = open();
+        assertNull(rebuilt.get("order-1"));
+        assertEquals("{\"status\":\"SUCCESS\"}", rebuilt.getOutput("order-2"));
+
+        // A new instance with the same ID is published again
+        rebuilt.publish("order-1", "COMPLETED", "{\"status\":\"FAILED\"}");
+        rebuilt.close();
+        OrderReadModel restarted = open();
+        assertEquals("{\"status\":\"FAILED\"}", restarted.getOutput("order-1"));
+        restarted.close();
+    }
+
+    private OrderReadModel open() throws IOException {
+        return new OrderReadModel(new SimpleMeterRegistry(), directory.toString(), 1 << 16);
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderTest {
+
+    @Test
+    void readsTopLevelFieldsAndSkipsNestedOnes() throws IOException {
+        Order order = Order.parse("{\"items\":[{\"amount\":0}],\"orderId\":\"ORD-1\","
+            + "\"shippingAddress\":{\"customerId\":\"X\"},\"customerId\":\"CUST-1\",\"amount\":10}");
+
+        assertEquals("ORD-1", order.getOrderId());
+        assertEquals("CUST-1", order.getCustomerId());
+        assertEquals(new BigDecimal("10"), order.getAmount());
+        assertTrue(order.isValid());
+    }
+
+    @Test
+    void knownFieldHoldingAnObjectIsSkipped() throws IOException {
+        Order order = Order.parse("{\"orderId\":{\"amount\":5}}");
+
+        assertNull(order.getOrderId());
+        assertNull(order.getAmount());
+        assertFalse(order.isValid());
+    }
+
+    @Test
+    void knownFieldHoldingAnArrayIsSkipped() throws IOException {
+        Order order = Order.parse("{\"customerId\":[\"x\"],\"amount\":10}");
+
+        assertNull(order.getCustomerId());
+        assertEquals(new BigDecimal("10"), order.getAmount());
+        assertTrue(order.isValid());
+    }
+
+    @Test
+    void paymentRequestIgnoresNestedFields() throws IOException {
+        PaymentRequest request = PaymentRequest.from("instance-1", "{\"orderId\":{\"amount\":5},\"amount\":7}");
+
+        assertNull(request.getOrderId());
+        assertEquals(new BigDecimal("7"), request.getAmount());
+    }
+}
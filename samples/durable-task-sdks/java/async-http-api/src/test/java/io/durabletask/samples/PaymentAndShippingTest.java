@@ -0,0 +1,252 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskCanceledException;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compensation and re-query paths of {@link PaymentAndShipping}. The orchestration context is a mock whose
+ * activities run as soon as they are scheduled, against real {@link PaymentGateway} and {@link ShippingGateway}
+ * stand-ins, and whose gateway responses and timeouts are set by each test.
+ */
+class PaymentAndShippingTest {
+    private static final String INSTANCE_ID = "order-instance-1";
+    private static final String ORDER = "{\"orderId\":\"ORD-1\",\"customerId\":\"CUST-1\",\"amount\":42.5,"
+        + "\"shippingAddress\":{\"city\":\"Seattle\"},\"items\":[{\"productId\":\"P-1\",\"quantity\":2}]}";
+    private static final String PAID = "{\"success\":true,\"transactionId\":\"TXN1\"}";
+    private static final String DECLINED = "{\"success\":false}";
+
+    private final PaymentGateway paymentGateway = new PaymentGateway("fixed:10", 0, 1, new SimpleMeterRegistry());
+    private final ShippingGateway shippingGateway =
+        new ShippingGateway("fixed:10", 0, 1, new SimpleMeterRegistry());
+    private final TaskOrchestrationContext ctx = mock(TaskOrchestrationContext.class);
+    private final List<String> activities = new ArrayList<>();
+    private final Set<CompletableFuture<String>> charges = Collections.newSetFromMap(new IdentityHashMap<>());
+    private CompletableFuture<String> chargeResponse;
+    private CompletableFuture<String> labelResponse;
+
+    @BeforeEach
+    void setUp() {
+        when(ctx.getInstanceId()).thenReturn(INSTANCE_ID);
+        when(ctx.getCurrentInstant()).thenReturn(Instant.EPOCH);
+        when(ctx.callActivity(eq("ProcessPayment"), any(), eq(Long.class))).thenAnswer(invocation -> {
+            activities.add("ProcessPayment");
+            chargeResponse = paymentGateway.call(invocation.<PaymentRequest>getArgument(1).toPayload());
+            charges.add(chargeResponse);
+            return completed(0L);
+        });
+        when(ctx.callActivity(eq("ShipOrder"), any(), eq(Long.class))).thenAnswer(invocation -> {
+            activities.add("ShipOrder");
+            labelResponse = shippingGateway.call(invocation.<ShipmentRequest>getArgument(1).toPayload());
+            return completed(0L);
+        });
+        when(ctx.callActivity(eq(PaymentAndShipping.RELEASE_ACTIVITY), any())).thenAnswer(invocation -> {
+            activities.add(PaymentAndShipping.RELEASE_ACTIVITY);
+            shippingGateway.release(invocation.<ShipmentRequest>getArgument(1).toPayload());
+            return completed(null);
+        });
+        when(ctx.allOf(anyList())).thenAnswer(invocation -> {
+            List<Object> results = new ArrayList<>();
+            for (Task<?> task : invocation.<List<Task<?>>>getArgument(0)) {
+                results.add(task.await());
+            }
+            return completed(results);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentGateway.shutdown();
+        shippingGateway.shutdown();
+    }
+
+    @Test
+    void speculativeDeclinedPaymentReleasesLabel() {
+        paymentResponds(DECLINED);
+        shipmentResponds();
+
+        OrderResult result = speculative();
+
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment processing failed\"}", result.toString());
+        assertTrue(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+        assertFalse(shippingGateway.hasLabel(INSTANCE_ID));
+    }
+
+    @Test
+    void speculativePaymentTimeoutReleasesConfirmedLabel() {
+        paymentTimesOut();
+        shipmentResponds();
+
+        OrderResult result = speculative();
+
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment gateway timed out\"}", result.toString());
+        assertTrue(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+        assertFalse(shippingGateway.hasLabel(INSTANCE_ID));
+    }
+
+    @Test
+    void speculativePaymentTimeoutReleasesUnconfirmedLabel() {
+        paymentTimesOut();
+        shipmentTimesOut();
+
+        OrderResult result = speculative();
+        // The label is confirmed after the order failed, and must be voided then
+        labelResponse.join();
+
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment gateway timed out\"}", result.toString());
+        assertTrue(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+        assertFalse(shippingGateway.hasLabel(INSTANCE_ID));
+    }
+
+    @Test
+    void speculativeShippingFailureAfterPaymentDoesNotRelease() {
+        paymentResponds(PAID);
+        when(ctx.waitForExternalEvent(eq("ShipmentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> completed("{\"success\":false}"));
+
+        OrderResult result = speculative();
+
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Shipping failed\"}", result.toString());
+        assertFalse(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+    }
+
+    @Test
+    void speculativeSuccessKeepsLabel() {
+        paymentResponds(PAID);
+        shipmentResponds();
+
+        OrderResult result = speculative();
+
+        assertTrue(result.toString().startsWith("{\"status\":\"SUCCESS\""));
+        assertFalse(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+        assertTrue(shippingGateway.hasLabel(INSTANCE_ID));
+    }
+
+    @Test
+    void sequentialNeverReleases() {
+        paymentResponds(DECLINED);
+        shipmentResponds();
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment processing failed\"}", sequential().toString());
+
+        paymentTimesOut();
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment gateway timed out\"}", sequential().toString());
+
+        paymentResponds(PAID);
+        assertTrue(sequential().toString().startsWith("{\"status\":\"SUCCESS\""));
+
+        assertFalse(activities.contains(PaymentAndShipping.RELEASE_ACTIVITY));
+        assertEquals(1, activities.stream().filter("ShipOrder"::equals).count());
+    }
+
+    @Test
+    void lostPaymentResponseIsRequeriedWithoutChargingAgain() {
+        // The process crashed after the charge and before PaymentResult was raised, so the first window passes
+        // without a response; the re-query raises the response to the original charge
+        when(ctx.waitForExternalEvent(eq("PaymentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> canceled())
+            .thenAnswer(invocation -> {
+                Task<String> event = task();
+                when(event.await()).thenAnswer(await -> chargeResponse.join());
+                return event;
+            });
+        shipmentResponds();
+
+        OrderResult result = sequential();
+
+        assertTrue(result.toString().startsWith("{\"status\":\"SUCCESS\""));
+        assertEquals(2, activities.stream().filter("ProcessPayment"::equals).count());
+        assertEquals(1, charges.size(), "the re-query gets the original charge back");
+        assertTrue(result.toString().contains(charges.iterator().next().join()));
+    }
+
+    @Test
+    void paymentTimesOutOnlyAfterEveryRequery() {
+        paymentTimesOut();
+
+        OrderResult result = sequential();
+
+        assertEquals("{\"status\":\"FAILED\",\"message\":\"Payment gateway timed out\"}", result.toString());
+        assertEquals(PaymentAndShipping.REQUERIES + 1, activities.stream().filter("ProcessPayment"::equals).count());
+        assertEquals(1, charges.size());
+    }
+
+    private OrderResult speculative() {
+        try {
+            return PaymentAndShipping.speculative(ctx, OrderTimeline.start(ctx), PaymentRequest.from(INSTANCE_ID, ORDER),
+                ShipmentRequest.from(INSTANCE_ID, ORDER), Duration.ofMinutes(5));
+        } catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private OrderResult sequential() {
+        try {
+            return PaymentAndShipping.sequential(ctx, OrderTimeline.start(ctx), PaymentRequest.from(INSTANCE_ID, ORDER),
+                ShipmentRequest.from(INSTANCE_ID, ORDER), Duration.ofMinutes(5));
+        } catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void paymentResponds(String response) {
+        when(ctx.waitForExternalEvent(eq("PaymentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> completed(response));
+    }
+
+    private void paymentTimesOut() {
+        when(ctx.waitForExternalEvent(eq("PaymentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> canceled());
+    }
+
+    private void shipmentResponds() {
+        // The response is whatever the gateway returns for the label the ShipOrder activity requested
+        when(ctx.waitForExternalEvent(eq("ShipmentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> {
+                Task<String> event = task();
+                when(event.await()).thenAnswer(await -> labelResponse.join());
+                return event;
+            });
+    }
+
+    private void shipmentTimesOut() {
+        when(ctx.waitForExternalEvent(eq("ShipmentResult"), any(Duration.class), eq(String.class)))
+            .thenAnswer(invocation -> canceled());
+    }
+
+    private static <V> Task<V> completed(V value) {
+        Task<V> task = task();
+        when(task.await()).thenReturn(value);
+        return task;
+    }
+
+    private static <V> Task<V> canceled() {
+        Task<V> task = task();
+        when(task.await()).thenThrow(TaskCanceledException.class);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Task<V> task() {
+        return mock(Task.class);
+    }
+}
@@ -0,0 +1,57 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.Task;
+import com.microsoft.durabletask.TaskOrchestrationContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PureStepTest {
+    private static final String REFERENCE = "claim-check:sha256:" + String.join("", Collections.nCopies(64, "a"));
+
+    private final TaskOrchestrationContext ctx = mock(TaskOrchestrationContext.class);
+    private final PureStep<String, Boolean> step = new PureStep<>("ValidateOrder", String.class, Boolean.class,
+        input -> input.contains("orderId"), input -> !ClaimCheckStore.isReference(input));
+
+    @Test
+    void inlineInputRunsInOrchestrator() {
+        assertTrue(step.call(ctx, "{\"orderId\":\"ORD-1\"}"));
+        verify(ctx, never()).callActivity(anyString(), any(), any());
+    }
+
+    @Test
+    void claimCheckReferenceRunsAsActivity() {
+        @SuppressWarnings("unchecked")
+        Task<Boolean> activity = mock(Task.class);
+        when(activity.await()).thenReturn(true);
+        when(ctx.callActivity("ValidateOrder", REFERENCE, Boolean.class)).thenReturn(activity);
+
+        assertTrue(step.call(ctx, REFERENCE));
+        verify(ctx).callActivity("ValidateOrder", REFERENCE, Boolean.class);
+    }
+
+    @Test
+    void onlyDispatchedStepsAreRecordedInTheTimeline() {
+        @SuppressWarnings("unchecked")
+        Task<Boolean> activity = mock(Task.class);
+        when(activity.await()).thenReturn(true);
+        when(ctx.callActivity("ValidateOrder", REFERENCE, Boolean.class)).thenReturn(activity);
+        when(ctx.getCurrentInstant()).thenReturn(Instant.EPOCH);
+        OrderTimeline timeline = OrderTimeline.start(ctx);
+
+        assertTrue(step.call(ctx, timeline, "{\"orderId\":\"ORD-1\"}"));
+        assertTrue(timeline.getSteps().isEmpty());
+
+        assertTrue(step.call(ctx, timeline, REFERENCE));
+        assertEquals(1, timeline.getSteps().size());
+        assertEquals("ValidateOrder", timeline.getSteps().get(0).getName());
+        assertNotNull(timeline.getSteps().get(0).getCompletedAt());
+    }
+}
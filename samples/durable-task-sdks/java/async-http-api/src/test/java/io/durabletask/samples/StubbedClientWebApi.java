@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.DurableTaskClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.MapPropertySource;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Runs {@link WebApi} with a stubbed {@link DurableTaskClient} in place of the scheduler, so the load generator
+ * can drive the real controller, and its thread model ({@code orders.web.virtual-threads}), offline.
+ * <p>
+ * Scheduling an order blocks its request thread for {@code orders.stub.schedule-latency-ms}, like the gRPC round
+ * trip of the real client does, and returns a new instance ID. The workers are not started and admission control
+ * is off, since no order ever completes.
+ */
+final class StubbedClientWebApi {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(WebApi.class, StubbedClientWebApi.class);
+        application.setAllowBeanDefinitionOverriding(true);
+        application.addInitializers(context -> context.getEnvironment().getPropertySources().addFirst(
+            new MapPropertySource("stubbedClient", Collections.singletonMap("orders.admission.max-in-flight", "0"))));
+        application.run(args);
+    }
+
+    /**
+     * Replaces the client bean of {@link WebApi.DurableTaskConfig}.
+     */
+    @Bean
+    DurableTaskClient durableTaskClient(@Value("${orders.stub.schedule-latency-ms:50}") long scheduleLatencyMs) {
+        return mock(DurableTaskClient.class, withSettings().stubOnly().defaultAnswer(invocation -> {
+            if (!invocation.getMethod().getName().equals("scheduleNewOrchestrationInstance")) {
+                return Answers.RETURNS_DEFAULTS.answer(invocation);
+            }
+            Thread.sleep(scheduleLatencyMs);
+            return UUID.randomUUID().toString();
+        }));
+    }
+
+    /**
+     * Replaces the workers' lifecycle with one that has no workers to start.
+     */
+    @Bean
+    WorkerLifecycle workerLifecycle(InFlightWork inFlightWork, GatewayCallbacks gatewayCallbacks,
+                                    WorkerChannels workerChannels, MeterRegistry registry) {
+        return new WorkerLifecycle(
+            Collections.emptyList(), inFlightWork, gatewayCallbacks, workerChannels, registry, Duration.ZERO);
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.microsoft.durabletask.TaskActivity;
+import com.microsoft.durabletask.TaskActivityContext;
+import com.microsoft.durabletask.TaskActivityFactory;
+import io.grpc.*;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Shutdown drain of {@link WorkerLifecycle}, with an in-process gRPC server standing in for the scheduler. The
+ * worker itself needs a scheduler to run, so the test runs a tracked activity directly and has it report its
+ * result over the worker's channel the way the worker would.
+ */
+class WorkerLifecycleTest {
+    private static final MethodDescriptor.Marshaller<String> TEXT = new MethodDescriptor.Marshaller<String>() {
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                byte[] bytes = new byte[stream.available()];
+                int read = stream.read(bytes);
+                return new String(bytes, 0, Math.max(read, 0), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+    private static final MethodDescriptor<String, String> COMPLETE = MethodDescriptor.<String, String>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName("test.Scheduler", "CompleteActivityTask"))
+        .setRequestMarshaller(TEXT)
+        .setResponseMarshaller(TEXT)
+        .build();
+
+    private final List<String> completions = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InFlightWork inFlightWork = new InFlightWork(registry);
+    private final GatewayCallbacks gatewayCallbacks = mock(GatewayCallbacks.class);
+    private final WorkerChannels workerChannels = new WorkerChannels();
+    private Server scheduler;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        scheduler = InProcessServerBuilder.forName(name)
+            .addService(ServerServiceDefinition.builder("test.Scheduler")
+                .addMethod(COMPLETE, ServerCalls.asyncUnaryCall((request, response) -> {
+                    completions.add(request);
+                    response.onNext("ok");
+                    response.onCompleted();
+                }))
+                .build())
+            .build()
+            .start();
+        channel = (ManagedChannel) workerChannels.register(InProcessChannelBuilder.forName(name).build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        workerChannels.close();
+        scheduler.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void completionSentDuringDrainIsDelivered() throws Exception {
+        WorkerLifecycle lifecycle = lifecycle(Duration.ofSeconds(5));
+        lifecycle.start();
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<Void> activity = runActivity(() -> {
+            running.countDown();
+            // Finish only once the drain has begun, then report the result as the worker would
+            while (lifecycle.isRunning()) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            ClientCalls.blockingUnaryCall(channel, COMPLETE, CallOptions.DEFAULT, "ProcessPayment#1");
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        lifecycle.stop();
+
+        activity.get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList("ProcessPayment#1"), completions);
+        assertEquals(0, registry.counter("orders.worker.abandoned").count());
+        assertTrue(channel.isShutdown(), "the worker's channel is closed once the drain is over");
+    }
+
+    @Test
+    void channelIsClosedAtTheDeadline() throws Exception {
+        WorkerLifecycle lifecycle = lifecycle(Duration.ofMillis(200));
+        lifecycle.start();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> activity = runActivity(() -> {
+            running.countDown();
+            release.await();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        lifecycle.stop();
+
+        assertEquals(1, registry.counter("orders.worker.abandoned").count());
+        assertTrue(channel.isShutdown());
+        release.countDown();
+        activity.get(5, TimeUnit.SECONDS);
+    }
+
+    private WorkerLifecycle lifecycle(Duration drainTimeout) {
+        return new WorkerLifecycle(
+            Collections.emptyList(), inFlightWork, gatewayCallbacks, workerChannels, registry, drainTimeout);
+    }
+
+    private CompletableFuture<Void> runActivity(Work work) {
+        TaskActivity activity = inFlightWork.tracked(new TaskActivityFactory() {
+            @Override
+            public String getName() { return "ProcessPayment"; }
+
+            @Override
+            public TaskActivity create() {
+                return ctx -> {
+                    try {
+                        work.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                };
+            }
+        }).create();
+        return CompletableFuture.runAsync(() -> activity.run(mock(TaskActivityContext.class)));
+    }
+
+    private interface Work {
+        void run() throws InterruptedException;
+    }
+}
@@ -0,0 +1,439 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for the async-http-api sample.
+ * <p>
+ * Requests are issued at a fixed arrival rate ({@code constant} or {@code poisson} inter-arrival times),
+ * independently of how fast the server responds. Each request's latency is measured from the time it was
+ * <em>supposed</em> to start, so requests delayed by a slow server (or by the generator's own request pool)
+ * count their full waiting time; this corrects for coordinated omission. Service time, measured from when the
+ * request was actually sent, is recorded separately for comparison.
+ * <p>
+ * Each arrival is either a {@code POST /api/orders} or, with probability {@code --get-fraction}, a
+ * {@code GET /api/orders/{instanceId}} for a previously created order. With {@code --stub} the generator runs
+ * fully offline against an in-process {@link OrderApiStub}.
+ * <p>
+ * A {@code --express-fraction} of the created orders are sent with {@code priority=express}. With
+ * {@code --completion} every created order is also long-polled until it finishes, and its end-to-end latency,
+ * from the intended start of its POST, is recorded per lane as {@code complete-standard} and
+ * {@code complete-express}; comparing the two under a standard-lane backlog shows whether the express lane is
+ * isolated from it.
+ * <p>
+ * Options (all {@code --name=value}): {@code target}, {@code stub}, {@code rate} (requests per second),
+ * {@code duration} and {@code warmup} (seconds), {@code get-fraction}, {@code express-fraction},
+ * {@code completion}, {@code arrival}, {@code max-concurrency}, {@code items}, {@code report-dir},
+ * {@code stub-schedule-latency-ms}, {@code stub-processing-ms}, {@code stub-workers} (orders each lane processes
+ * at a time, 0 for unlimited), {@code stub-lanes} (give express orders their own lane), {@code stub-request-threads}
+ * ({@code unbounded}, a thread count or {@code virtual}; see {@link OrderApiStub}), {@code stub-activities} and
+ * {@code stub-dispatch-ms} (process each order as the work items of an orchestration with that many activities,
+ * each dispatched after that long; {@code stub-processing-ms} is then the time per work item).
+ */
+final class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final Pattern INSTANCE_ID = Pattern.compile("\"instanceId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long COMPLETION_WAIT_MS = 30_000;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Options options;
+    private final String target;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong orderSequence = new AtomicLong();
+    private final AtomicReferenceArray<String> knownInstanceIds = new AtomicReferenceArray<>(4096);
+    private final AtomicLong knownInstanceCount = new AtomicLong();
+    private final Map<String, Operation> operations = new HashMap<>();
+    private final ExecutorService completionPool = Executors.newCachedThreadPool();
+    private final AtomicLong pendingCompletions = new AtomicLong();
+    private volatile long lastCollectNanos;
+
+    private LoadGenerator(Options options, String target) {
+        this.options = options;
+        this.target = target;
+        operations.put("create", new Operation("create"));
+        operations.put("get", new Operation("get"));
+        if (options.completion) {
+            operations.put("complete-standard", new Operation("complete-standard"));
+            operations.put("complete-express", new Operation("complete-express"));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        OrderApiStub stub = null;
+        String target = options.target;
+        if (options.stub) {
+            stub = new OrderApiStub(0, options.stubScheduleLatencyMs, options.stubProcessingMs,
+                options.stubWorkers, options.stubLanes, options.stubRequestThreads, options.stubActivities,
+                options.stubDispatchMs);
+            target = stub.baseUrl();
+            logger.info("Started offline order API stub at {}", target);
+        }
+
+        try {
+            new LoadGenerator(options, target).run();
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            options.maxConcurrency, options.maxConcurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        logger.info("Driving {} at {} req/s ({} arrivals) for {} s after {} s warmup",
+            target, options.rate, options.arrival, options.durationSeconds, options.warmupSeconds);
+
+        // The first report fires when the warmup ends, so no later interval straddles the warmup
+        lastCollectNanos = startNanos;
+        long firstReportMs = options.warmupSeconds > 0 ? TimeUnit.SECONDS.toMillis(options.warmupSeconds) : 1000;
+        reporter.scheduleAtFixedRate(
+            () -> collectInterval(measureFromNanos, true), firstReportMs, 1000, TimeUnit.MILLISECONDS);
+
+        // Open loop: the arrival schedule never waits for responses
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        double nextArrival = startNanos;
+        while (nextArrival < endNanos) {
+            long intendedStart = (long) nextArrival;
+            long waitNanos = intendedStart - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+
+            boolean isGet = knownInstanceCount.get() > 0 && random.nextDouble() < options.getFraction;
+            pool.execute(() -> {
+                if (isGet) {
+                    getOrder(intendedStart);
+                } else {
+                    createOrder(intendedStart);
+                }
+            });
+
+            nextArrival += "poisson".equals(options.arrival)
+                ? -Math.log(1 - random.nextDouble()) * intervalNanos
+                : intervalNanos;
+        }
+
+        pool.shutdown();
+        if (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+            logger.warn("{} requests were still queued at the end of the run", pool.getQueue().size());
+            pool.shutdownNow();
+        }
+        awaitCompletions();
+        reporter.shutdownNow();
+        reporter.awaitTermination(5, TimeUnit.SECONDS);
+        collectInterval(measureFromNanos, false);
+        report((System.nanoTime() - measureFromNanos) / 1_000_000_000.0);
+    }
+
+    private void createOrder(long intendedStartNanos) {
+        long sequence = orderSequence.incrementAndGet();
+        // Unique order IDs, so that idempotent intake doesn't collapse the generated orders
+        StringBuilder order = new StringBuilder()
+            .append("{\"orderId\": \"LOAD-").append(runId).append('-').append(sequence)
+            .append("\", \"customerId\": \"CUST").append(sequence % 1000)
+            .append("\", \"amount\": 125.50, \"items\": [");
+        for (int i = 0; i < options.items; i++) {
+            if (i > 0) {
+                order.append(", ");
+            }
+            order.append("{\"productId\": \"PROD").append(i).append("\", \"quantity\": 1, \"price\": 25.10}");
+        }
+        order.append("]}");
+
+        boolean express = ThreadLocalRandom.current().nextDouble() < options.expressFraction;
+        Operation operation = operations.get("create");
+        long sentNanos = System.nanoTime();
+        try {
+            String path = express ? "/api/orders?priority=express" : "/api/orders";
+            Matcher matcher = INSTANCE_ID.matcher(send("POST", path, order.toString()).body);
+            if (matcher.find()) {
+                long slot = knownInstanceCount.getAndIncrement();
+                knownInstanceIds.set((int) (slot % knownInstanceIds.length()), matcher.group(1));
+                if (options.completion) {
+                    awaitCompletion(matcher.group(1), express, intendedStartNanos, sentNanos);
+                }
+            }
+            operation.record(intendedStartNanos, sentNanos, true);
+        } catch (IOException e) {
+            operation.record(intendedStartNanos, sentNanos, false);
+        }
+    }
+
+    private void awaitCompletion(String instanceId, boolean express, long intendedStartNanos, long sentNanos) {
+        // Long polls can take seconds each, so they run apart from the request pool that keeps the arrival rate
+        Operation operation = operations.get(express ? "complete-express" : "complete-standard");
+        pendingCompletions.incrementAndGet();
+        completionPool.execute(() -> {
+            try {
+                String path = "/api/orders/" + instanceId + "?waitMs=" + COMPLETION_WAIT_MS;
+                while (send("GET", path, null).status == HttpURLConnection.HTTP_ACCEPTED) {
+                    // Still running; poll again
+                }
+                operation.record(intendedStartNanos, sentNanos, true);
+            } catch (IOException e) {
+                operation.record(intendedStartNanos, sentNanos, false);
+            } finally {
+                pendingCompletions.decrementAndGet();
+            }
+        });
+    }
+
+    private void awaitCompletions() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+        while (pendingCompletions.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        if (pendingCompletions.get() > 0) {
+            logger.warn("{} orders had not finished at the end of the run", pendingCompletions.get());
+        }
+        completionPool.shutdownNow();
+    }
+
+    private void getOrder(long intendedStartNanos) {
+        long known = Math.min(knownInstanceCount.get(), knownInstanceIds.length());
+        String instanceId = knownInstanceIds.get(ThreadLocalRandom.current().nextInt((int) known));
+        if (instanceId == null) {
+            // The slot was claimed but its ID not yet published; create an order instead
+            createOrder(intendedStartNanos);
+            return;
+        }
+
+        Operation operation = operations.get("get");
+        long sentNanos = System.nanoTime();
+        try {
+            send("GET", "/api/orders/" + instanceId, null);
+            operation.record(intendedStartNanos, sentNanos, true);
+        } catch (IOException e) {
+            operation.record(intendedStartNanos, sentNanos, false);
+        }
+    }
+
+    private Response send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(target + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(30_000);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        // Always read the body fully so the connection can be reused
+        String response = in != null ? readFully(in) : "";
+        if (status >= 300) {
+            throw new IOException("HTTP " + status);
+        }
+        return new Response(status, response);
+    }
+
+    private synchronized void collectInterval(long measureFromNanos, boolean logProgress) {
+        boolean measuring = lastCollectNanos >= measureFromNanos;
+        lastCollectNanos = System.nanoTime();
+        StringBuilder progress = new StringBuilder();
+        for (Operation operation : operations.values()) {
+            Histogram responseTimes = operation.responseTimeRecorder.getIntervalHistogram();
+            Histogram serviceTimes = operation.serviceTimeRecorder.getIntervalHistogram();
+            long errors = operation.intervalErrors.getAndSet(0);
+            if (measuring) {
+                operation.responseTimes.add(responseTimes);
+                operation.serviceTimes.add(serviceTimes);
+                operation.errors.addAndGet(errors);
+            }
+            progress.append(String.format(" %s: %d req, p99 %.1f ms, %d errors;",
+                operation.name,
+                responseTimes.getTotalCount(),
+                responseTimes.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                errors));
+        }
+        if (logProgress) {
+            logger.info("{}{}", measuring ? "" : "[warmup]", progress);
+        }
+    }
+
+    private void report(double elapsedSeconds) throws IOException {
+        Path reportDir = Paths.get(options.reportDir,
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(reportDir);
+
+        StringBuilder summary = new StringBuilder()
+            .append(String.format("target=%s rate=%.1f arrival=%s duration=%ds%n",
+                target, options.rate, options.arrival, options.durationSeconds));
+        for (Operation operation : operations.values()) {
+            Histogram responseTimes = operation.responseTimes;
+            summary.append(String.format(
+                "%-6s count=%d throughput=%.1f/s errors=%d | response time ms: p50=%.2f p90=%.2f p99=%.2f " +
+                    "p99.9=%.2f max=%.2f | service time ms: p50=%.2f p99=%.2f%n",
+                operation.name,
+                responseTimes.getTotalCount(),
+                responseTimes.getTotalCount() / elapsedSeconds,
+                operation.errors.get(),
+                responseTimes.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                responseTimes.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                responseTimes.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                responseTimes.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                responseTimes.getMaxValue() / NANOS_PER_MILLI,
+                operation.serviceTimes.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                operation.serviceTimes.getValueAtPercentile(99) / NANOS_PER_MILLI));
+
+            // Full percentile distributions in milliseconds, in the .hgrm format used by HdrHistogram plotters
+            try (PrintStream out = new PrintStream(reportDir.resolve(operation.name + ".hgrm").toFile(), "UTF-8")) {
+                responseTimes.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+            try (PrintStream out = new PrintStream(
+                    reportDir.resolve(operation.name + "-service.hgrm").toFile(), "UTF-8")) {
+                operation.serviceTimes.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+        Files.write(reportDir.resolve("summary.txt"), summary.toString().getBytes(StandardCharsets.UTF_8));
+        logger.info("Results (written to {}):{}{}", reportDir, System.lineSeparator(), summary);
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Status and body of a successful response.
+     */
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Latency recorders and totals for one kind of request.
+     */
+    private static final class Operation {
+        final String name;
+        final Recorder responseTimeRecorder = new Recorder(3);
+        final Recorder serviceTimeRecorder = new Recorder(3);
+        final Histogram responseTimes = new Histogram(3);
+        final Histogram serviceTimes = new Histogram(3);
+        final AtomicLong intervalErrors = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long intendedStartNanos, long sentNanos, boolean succeeded) {
+            long now = System.nanoTime();
+            responseTimeRecorder.recordValue(now - intendedStartNanos);
+            serviceTimeRecorder.recordValue(now - sentNanos);
+            if (!succeeded) {
+                intervalErrors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Command line options.
+     */
+    private static final class Options {
+        String target = "http://localhost:8083";
+        boolean stub;
+        double rate = 50;
+        long durationSeconds = 60;
+        long warmupSeconds = 5;
+        double getFraction = 0.5;
+        double expressFraction;
+        boolean completion;
+        String arrival = "constant";
+        int maxConcurrency = 200;
+        int items = 2;
+        String reportDir = "build/reports/load";
+        long stubScheduleLatencyMs = 5;
+        long stubProcessingMs = 2000;
+        int stubWorkers;
+        boolean stubLanes = true;
+        String stubRequestThreads = "unbounded";
+        int stubActivities;
+        long stubDispatchMs;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                String[] pair = arg.substring(2).split("=", 2);
+                String value = pair.length > 1 ? pair[1] : "true";
+                switch (pair[0]) {
+                    case "target": options.target = value; break;
+                    case "stub": options.stub = Boolean.parseBoolean(value); break;
+                    case "rate": options.rate = Double.parseDouble(value); break;
+                    case "duration": options.durationSeconds = Long.parseLong(value); break;
+                    case "warmup": options.warmupSeconds = Long.parseLong(value); break;
+                    case "get-fraction": options.getFraction = Double.parseDouble(value); break;
+                    case "express-fraction": options.expressFraction = Double.parseDouble(value); break;
+                    case "completion": options.completion = Boolean.parseBoolean(value); break;
+                    case "arrival": options.arrival = value; break;
+                    case "max-concurrency": options.maxConcurrency = Integer.parseInt(value); break;
+                    case "items": options.items = Integer.parseInt(value); break;
+                    case "report-dir": options.reportDir = value; break;
+                    case "stub-schedule-latency-ms": options.stubScheduleLatencyMs = Long.parseLong(value); break;
+                    case "stub-processing-ms": options.stubProcessingMs = Long.parseLong(value); break;
+                    case "stub-workers": options.stubWorkers = Integer.parseInt(value); break;
+                    case "stub-lanes": options.stubLanes = Boolean.parseBoolean(value); break;
+                    case "stub-request-threads": options.stubRequestThreads = value; break;
+                    case "stub-activities": options.stubActivities = Integer.parseInt(value); break;
+                    case "stub-dispatch-ms": options.stubDispatchMs = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (!"constant".equals(options.arrival) && !"poisson".equals(options.arrival)) {
+                throw new IllegalArgumentException("--arrival must be constant or poisson");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+package io.durabletask.samples;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the async-http-api sample and its scheduler, so the load generator can run offline.
+ * <p>
+ * {@code POST /api/orders} waits for a simulated scheduling latency and returns a new instance ID, and
+ * {@code GET /api/orders/{instanceId}} returns the order result once it has been processed (and an empty body
+ * while it is still running), mirroring the real endpoints. With {@code waitMs} the GET is held until the order
+ * finishes or the wait elapses, in which case it returns 202 Accepted.
+ * <p>
+ * Processing an order takes a simulated processing time. With {@code workers} of 0 there is no capacity limit;
+ * otherwise each lane processes at most {@code workers} orders at a time, in arrival order, so a burst of orders
+ * queues up behind the worker like it does against the scheduler. Orders created with {@code priority=express}
+ * use a lane of their own when {@code lanes} is set, and share the standard lane otherwise.
+ * <p>
+ * With {@code activities} above 0 an order is processed as the work items of its orchestration instead: a first
+ * orchestrator episode, then each activity followed by the orchestrator replay that its result triggers, so
+ * {@code 2 * activities + 1} work items one after the other. Each one waits {@code dispatchMs} for the scheduler
+ * to dispatch it, without holding a worker, and then takes {@code processingTimeMs} on a worker. Comparing runs
+ * with one activity more or less shows what running a step inline in the orchestrator saves end to end.
+ * <p>
+ * {@code requestThreads} sets what serves the requests: {@code unbounded} (the default) starts a thread whenever
+ * all are busy; a number caps them like Tomcat's worker pool ({@code server.tomcat.threads.max}, 200 by default),
+ * so requests beyond it queue; {@code virtual} serves each request on its own virtual thread, like
+ * {@code orders.web.virtual-threads} does, and needs Java 21 or later. The scheduling latency is a blocking wait,
+ * like the {@code DurableTaskClient} call it stands in for, so it holds the request's thread throughout.
+ */
+final class OrderApiStub implements AutoCloseable {
+    private static final Pattern WAIT_MS = Pattern.compile("(?:^|&)waitMs=(\\d+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService standardLane;
+    private final ExecutorService expressLane;
+    private final long scheduleLatencyMs;
+    private final long processingTimeMs;
+    private final int activities;
+    private final long dispatchMs;
+    private final Map<String, CompletableFuture<Void>> orders = new ConcurrentHashMap<>();
+
+    OrderApiStub(int port, long scheduleLatencyMs, long processingTimeMs, int workers, boolean lanes,
+                 String requestThreads, int activities, long dispatchMs) throws IOException {
+        this.scheduleLatencyMs = scheduleLatencyMs;
+        this.processingTimeMs = processingTimeMs;
+        this.activities = activities;
+        this.dispatchMs = dispatchMs;
+        this.executor = requestExecutor(requestThreads);
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.standardLane = workers > 0 ? Executors.newFixedThreadPool(workers) : null;
+        this.expressLane = workers > 0 && lanes ? Executors.newFixedThreadPool(workers) : standardLane;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.createContext("/api/orders", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * Returns the base URL the stub is listening on.
+     */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        timer.shutdownNow();
+        if (standardLane != null) {
+            standardLane.shutdownNow();
+            expressLane.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            if ("POST".equals(exchange.getRequestMethod()) && "/api/orders".equals(path)) {
+                drain(exchange.getRequestBody());
+                sleep(scheduleLatencyMs);
+                boolean express = query != null && query.contains("priority=express");
+                String instanceId = UUID.randomUUID().toString();
+                orders.put(instanceId, process(express));
+                respond(exchange, 200, "{\"instanceId\": \"" + instanceId + "\"}");
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.startsWith("/api/orders/")) {
+                CompletableFuture<Void> order = orders.get(path.substring("/api/orders/".length()));
+                Matcher waitMs = WAIT_MS.matcher(query != null ? query : "");
+                boolean longPoll = waitMs.find();
+                if (order != null && longPoll) {
+                    awaitQuietly(order, Long.parseLong(waitMs.group(1)));
+                }
+                if (order == null) {
+                    respond(exchange, 200, "{\"error\": \"Order not found\"}");
+                } else if (order.isDone()) {
+                    respond(exchange, 200, "{\"status\": \"SUCCESS\"}");
+                } else if (longPoll) {
+                    respond(exchange, 202, "{\"runtimeStatus\": \"RUNNING\"}");
+                } else {
+                    respond(exchange, 200, "");
+                }
+            } else {
+                respond(exchange, 404, "");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static ExecutorService requestExecutor(String requestThreads) {
+        if ("unbounded".equals(requestThreads)) {
+            // Long polls hold their thread for up to waitMs
+            return Executors.newCachedThreadPool();
+        }
+        if ("virtual".equals(requestThreads)) {
+            // Looked up reflectively so the generator still builds and runs on older JDKs
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("--stub-request-threads=virtual requires Java 21 or later", e);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create the virtual thread executor", e);
+            }
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(requestThreads);
+        } catch (NumberFormatException e) {
+            threads = 0;
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("--stub-request-threads must be unbounded, virtual or a thread count");
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private CompletableFuture<Void> process(boolean express) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        ExecutorService lane = express ? expressLane : standardLane;
+        if (activities > 0) {
+            runWorkItems(lane, 2 * activities + 1, done);
+        } else if (lane == null) {
+            timer.schedule(() -> done.complete(null), processingTimeMs, TimeUnit.MILLISECONDS);
+        } else {
+            lane.execute(() -> {
+                sleep(processingTimeMs);
+                done.complete(null);
+            });
+        }
+        return done;
+    }
+
+    private void runWorkItems(ExecutorService lane, int remaining, CompletableFuture<Void> done) {
+        Runnable next = () -> {
+            if (remaining == 1) {
+                done.complete(null);
+            } else {
+                runWorkItems(lane, remaining - 1, done);
+            }
+        };
+        if (lane == null) {
+            timer.schedule(next, dispatchMs + processingTimeMs, TimeUnit.MILLISECONDS);
+        } else {
+            timer.schedule(() -> lane.execute(() -> {
+                sleep(processingTimeMs);
+                next.run();
+            }), dispatchMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // Discard the order document
+        }
+    }
+
+    private static void awaitQuietly(CompletableFuture<Void> order, long millis) {
+        try {
+            order.get(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Still running; the caller reports the current status
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}